@@ -0,0 +1,31 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 发件箱转发配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.outbox")
+@Data
+public class OutboxProperties {
+    /**
+     * 每批转发的消息数，整批发送后等待一次确认
+     */
+    private int batchSize = 200;
+    /**
+     * 轮询发件箱的间隔，写入后会立即触发转发，轮询只用于兜底
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /**
+     * 等待broker确认的超时时间，超时后整批留在发件箱中稍后重发
+     */
+    private Duration confirmTimeout = Duration.ofSeconds(5);
+}
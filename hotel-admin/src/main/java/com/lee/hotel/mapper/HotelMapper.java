@@ -2,6 +2,17 @@ package com.lee.hotel.mapper;
 
 import com.lee.hotel.pojo.Hotel;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 public interface HotelMapper extends BaseMapper<Hotel> {
+
+    /**
+     * 读取并锁定一行，同一家酒店的并发修改依次计算差异，变更消息的顺序与提交顺序一致
+     *
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM tb_hotel WHERE id = #{id} FOR UPDATE")
+    Hotel selectForUpdate(@Param("id") Long id);
 }
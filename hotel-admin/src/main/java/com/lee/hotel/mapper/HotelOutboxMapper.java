@@ -0,0 +1,26 @@
+package com.lee.hotel.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lee.hotel.pojo.HotelOutbox;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public interface HotelOutboxMapper extends BaseMapper<HotelOutbox> {
+
+    /**
+     * 按写入顺序取最早的一批并加锁，队首已被其他实例锁定时立即失败（CannotAcquireLockException），
+     * 不会越过正在转发的一批去发送后面的消息
+     * 需要MySQL 8.0以上，调用方使用READ COMMITTED，不加间隙锁
+     *
+     * @param limit
+     * @return
+     */
+    @Select("SELECT id, routing_key, payload, created_at FROM tb_hotel_outbox ORDER BY id LIMIT #{limit} FOR UPDATE NOWAIT")
+    List<HotelOutbox> lockBatch(@Param("limit") int limit);
+}
@@ -0,0 +1,159 @@
+package com.lee.hotel.outbox;
+
+import com.lee.hotel.config.OutboxProperties;
+import com.lee.hotel.constants.MqConstants;
+import com.lee.hotel.mapper.HotelOutboxMapper;
+import com.lee.hotel.pojo.HotelOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 发件箱转发：按写入顺序把发件箱中的消息批量发送到MQ
+ * 1.在READ COMMITTED事务中用NOWAIT加锁读取最早的一批，队首被其他实例锁定时放弃，等下次轮询再试
+ * 2.在同一个channel上连续发送整批消息，只等待一次publisher confirm
+ * 3.全部确认后删除这一批，发送失败或确认超时则回滚，留在发件箱中下次重发
+ * READ COMMITTED下加锁读不加间隙锁，转发期间业务写入发件箱不会被阻塞
+ * 崩溃发生在确认之后、删除之前时消息会重复发送，索引服务按id写入，重复消费没有影响
+ * <p>
+ * 顺序保证：多个实例同时运行时只有锁住队首的一个在转发，上一批删除之前其他实例拿不到下一批，
+ * 消息严格按发件箱id的顺序发送到MQ；同一家酒店的修改在tb_hotel的行锁下依次提交，id顺序就是提交顺序，
+ * 所以同一家酒店的变更消息按提交顺序到达。不同酒店之间，后提交的可能先拿到较小的id，不保证顺序
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final HotelOutboxMapper outboxMapper;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final OutboxProperties properties;
+
+    /**
+     * 单线程执行，同一实例内的转发不会并发
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 是否已有待执行的转发任务，避免写入频繁时堆积任务
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public OutboxRelay(HotelOutboxMapper outboxMapper, RabbitTemplate rabbitTemplate,
+                       PlatformTransactionManager transactionManager, OutboxProperties properties) {
+        this.outboxMapper = outboxMapper;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.properties = properties;
+    }
+
+    /**
+     * 启动后开始轮询，转发上次停机前未发送的消息
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = properties.getPollInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::wakeUp, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 有新消息写入发件箱，尽快转发
+     */
+    public void wakeUp() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == properties.getBatchSize());
+        } catch (CannotAcquireLockException e) {
+            // 其他实例正在转发队首的一批，本实例退避到下次轮询
+            log.debug("发件箱正由其他实例转发，{}ms后重试", properties.getPollInterval().toMillis());
+        } catch (RuntimeException e) {
+            log.error("发件箱转发失败，稍后重试：{}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<HotelOutbox> batch = outboxMapper.lockBatch(properties.getBatchSize());
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            publish(batch);
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (HotelOutbox outbox : batch) {
+                ids.add(outbox.getId());
+            }
+            outboxMapper.deleteBatchIds(ids);
+            return batch.size();
+        });
+        if (relayed != null && relayed > 0) {
+            log.debug("发件箱转发{}条消息", relayed);
+        }
+        return relayed == null ? 0 : relayed;
+    }
+
+    /**
+     * 整批发送后等待一次确认，任意一条被拒绝或超时都抛出异常
+     */
+    private void publish(List<HotelOutbox> batch) {
+        long timeout = properties.getConfirmTimeout().toMillis();
+        rabbitTemplate.invoke(operations -> {
+            for (HotelOutbox outbox : batch) {
+                operations.send(MqConstants.HOTEL_EXCHANGE, outbox.getRoutingKey(), toMessage(outbox));
+            }
+            operations.waitForConfirmsOrDie(timeout);
+            return null;
+        });
+    }
+
+    private Message toMessage(HotelOutbox outbox) {
+        return MessageBuilder.withBody(outbox.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.lee.hotel.pojo;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -21,4 +22,7 @@ public class Hotel {
     private String longitude;
     private String latitude;
     private String pic;
+    // 广告标记，列名不符合驼峰转换规则
+    @TableField("is_ad")
+    private Boolean isAD;
 }
@@ -0,0 +1,68 @@
+package com.lee.hotel.pojo;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店变更消息，携带变更后的整行数据，索引服务不需要再查询数据库
+ * 字段变化时递增VERSION，索引服务遇到不认识的版本时按id查库
+ */
+@Data
+@NoArgsConstructor
+public class HotelChangeEvent {
+    /**
+     * 当前的消息格式版本
+     */
+    public static final int VERSION = 1;
+
+    private int version = VERSION;
+    /**
+     * 酒店id
+     */
+    private Long id;
+    /**
+     * 变更后的酒店数据，删除时为null
+     */
+    private Hotel hotel;
+    /**
+     * 修改时变化的字段（Hotel的属性名），为null时索引服务按整行写入
+     */
+    private List<String> changedFields;
+    /**
+     * 变更时间，毫秒时间戳
+     */
+    private long changedAt;
+
+    public static HotelChangeEvent upsert(Hotel hotel) {
+        HotelChangeEvent event = new HotelChangeEvent();
+        event.setId(hotel.getId());
+        event.setHotel(hotel);
+        event.setChangedAt(System.currentTimeMillis());
+        return event;
+    }
+
+    /**
+     * 只有部分字段变化的修改，索引服务只写入这些字段
+     *
+     * @param hotel         修改后的整行数据
+     * @param changedFields 变化的字段
+     * @return
+     */
+    public static HotelChangeEvent update(Hotel hotel, List<String> changedFields) {
+        HotelChangeEvent event = upsert(hotel);
+        event.setChangedFields(changedFields);
+        return event;
+    }
+
+    public static HotelChangeEvent delete(Long id) {
+        HotelChangeEvent event = new HotelChangeEvent();
+        event.setId(id);
+        event.setChangedAt(System.currentTimeMillis());
+        return event;
+    }
+}
@@ -0,0 +1,27 @@
+package com.lee.hotel.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 发件箱中待发送的酒店变更消息，与tb_hotel在同一个事务中写入
+ */
+@Data
+@TableName("tb_hotel_outbox")
+public class HotelOutbox {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private String routingKey;
+    /**
+     * JSON格式的HotelChangeEvent
+     */
+    private String payload;
+    private Date createdAt;
+}
@@ -5,4 +5,25 @@ import com.baomidou.mybatisplus.extension.service.IService;
 
 public interface IHotelService extends IService<Hotel> {
 
+    /**
+     * 新增酒店，变更消息与数据在同一个事务中写入发件箱
+     *
+     * @param hotel
+     */
+    void saveHotel(Hotel hotel);
+
+    /**
+     * 修改酒店，变更消息与数据在同一个事务中写入发件箱
+     * 消息只标记值发生变化的字段，没有变化时不写入
+     *
+     * @param hotel
+     */
+    void updateHotel(Hotel hotel);
+
+    /**
+     * 删除酒店，变更消息与数据在同一个事务中写入发件箱
+     *
+     * @param id
+     */
+    void deleteHotel(Long id);
 }
@@ -1,11 +1,117 @@
 package com.lee.hotel.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.constants.MqConstants;
 import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.mapper.HotelOutboxMapper;
+import com.lee.hotel.outbox.OutboxRelay;
 import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelChangeEvent;
+import com.lee.hotel.pojo.HotelOutbox;
 import com.lee.hotel.service.IHotelService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 @Service
 public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHotelService {
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveHotel(Hotel hotel) {
+        save(hotel);
+        enqueue(MqConstants.HOTEL_INSERT_KEY, HotelChangeEvent.upsert(hotel));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void updateHotel(Hotel hotel) {
+        // 锁定修改前的行，与请求体比较得到变化的字段
+        Hotel changed = baseMapper.selectForUpdate(hotel.getId());
+        if (changed == null) {
+            return;
+        }
+        List<String> changedFields = diff(changed, hotel);
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        updateById(hotel);
+        enqueue(MqConstants.HOTEL_INSERT_KEY, HotelChangeEvent.update(changed, changedFields));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteHotel(Long id) {
+        removeById(id);
+        enqueue(MqConstants.HOTEL_DELETE_KEY, HotelChangeEvent.delete(id));
+    }
+
+    /**
+     * 写入发件箱，事务提交后通知转发任务，回滚时消息随之消失
+     */
+    private void enqueue(String routingKey, HotelChangeEvent event) {
+        HotelOutbox outbox = new HotelOutbox();
+        outbox.setRoutingKey(routingKey);
+        outbox.setCreatedAt(new Date());
+        try {
+            outbox.setPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("酒店变更消息序列化失败", e);
+        }
+        outboxMapper.insert(outbox);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    /**
+     * 把请求体中的非null字段合并到修改前的行，updateById同样不修改为null的字段
+     *
+     * @param row    修改前的行，合并后成为修改后的整行
+     * @param update 请求体
+     * @return 值发生变化的字段
+     */
+    private List<String> diff(Hotel row, Hotel update) {
+        List<String> changed = new ArrayList<>();
+        row.setName(merge("name", row.getName(), update.getName(), changed));
+        row.setAddress(merge("address", row.getAddress(), update.getAddress(), changed));
+        row.setPrice(merge("price", row.getPrice(), update.getPrice(), changed));
+        row.setScore(merge("score", row.getScore(), update.getScore(), changed));
+        row.setBrand(merge("brand", row.getBrand(), update.getBrand(), changed));
+        row.setCity(merge("city", row.getCity(), update.getCity(), changed));
+        row.setStarName(merge("starName", row.getStarName(), update.getStarName(), changed));
+        row.setBusiness(merge("business", row.getBusiness(), update.getBusiness(), changed));
+        row.setLongitude(merge("longitude", row.getLongitude(), update.getLongitude(), changed));
+        row.setLatitude(merge("latitude", row.getLatitude(), update.getLatitude(), changed));
+        row.setPic(merge("pic", row.getPic(), update.getPic(), changed));
+        row.setIsAD(merge("isAD", row.getIsAD(), update.getIsAD(), changed));
+        return changed;
+    }
+
+    private static <T> T merge(String field, T oldValue, T newValue, List<String> changed) {
+        if (newValue == null || newValue.equals(oldValue)) {
+            return oldValue;
+        }
+        changed.add(field);
+        return newValue;
+    }
 }
@@ -1,11 +1,9 @@
 package com.lee.hotel.web;
 
-import com.lee.hotel.constants.MqConstants;
 import com.lee.hotel.pojo.Hotel;
 import com.lee.hotel.pojo.PageResult;
 import com.lee.hotel.service.IHotelService;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,8 +15,6 @@ public class HotelController {
 
     @Autowired
     private IHotelService hotelService;
-    @Autowired
-    private RabbitTemplate rabbitTemplate;
 
     @GetMapping("/{id}")
     public Hotel queryById(@PathVariable("id") Long id) {
@@ -37,9 +33,7 @@ public class HotelController {
 
     @PostMapping
     public void saveHotel(@RequestBody Hotel hotel) {
-        hotelService.save(hotel);
-
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+        hotelService.saveHotel(hotel);
     }
 
     @PutMapping()
@@ -47,16 +41,11 @@ public class HotelController {
         if (hotel.getId() == null) {
             throw new InvalidParameterException("id不能为空");
         }
-        hotelService.updateById(hotel);
-
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+        hotelService.updateHotel(hotel);
     }
 
     @DeleteMapping("/{id}")
     public void deleteById(@PathVariable("id") Long id) {
-        hotelService.removeById(id);
-
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_DELETE_KEY, id);
-
+        hotelService.deleteHotel(id);
     }
 }
@@ -0,0 +1,11 @@
+-- 广告标记保存在数据库中，重建索引时随整行写入ES；列已存在时跳过
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+                      'ALTER TABLE tb_hotel ADD COLUMN is_ad TINYINT(1) NOT NULL DEFAULT 0 COMMENT ''是否广告酒店''',
+                      'SELECT 1')
+            FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = DATABASE()
+              AND TABLE_NAME = 'tb_hotel'
+              AND COLUMN_NAME = 'is_ad');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
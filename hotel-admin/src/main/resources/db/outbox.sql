@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS tb_hotel_outbox
+(
+    id          BIGINT       NOT NULL AUTO_INCREMENT COMMENT '自增id，决定消息的发送顺序',
+    routing_key VARCHAR(64)  NOT NULL COMMENT '发送到hotel.topic的RoutingKey',
+    payload     TEXT         NOT NULL COMMENT 'JSON格式的HotelChangeEvent',
+    created_at  DATETIME     NOT NULL COMMENT '写入时间',
+    PRIMARY KEY (id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='酒店变更消息发件箱';
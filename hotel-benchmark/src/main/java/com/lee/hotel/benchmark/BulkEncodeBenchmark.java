@@ -0,0 +1,88 @@
+package com.lee.hotel.benchmark;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.index.HotelBulkEncoder;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 重建索引时一页（1000条）数据编码成_bulk请求体：HotelDoc + Jackson 与 直接编码 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkEncodeBenchmark {
+
+    private static final String INDEX = "hotel_20260101000000";
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    private List<Hotel> hotels;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+
+    private final HotelBulkEncoder encoder = new HotelBulkEncoder(1024 * 1024);
+
+    @Setup
+    public void setUp() {
+        hotels = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            Hotel hotel = Fixtures.hotel();
+            hotel.setId(38609L + i);
+            hotel.setPrice(100 + i);
+            hotels.add(hotel);
+        }
+    }
+
+    /**
+     * 与客户端发送BulkRequest时的序列化一致：每条操作一行action、一行文档
+     */
+    @Benchmark
+    public int jackson() {
+        out.reset();
+        for (Hotel hotel : hotels) {
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            BulkOperation op = BulkOperation.of(o -> o
+                    .create(c -> c
+                            .index(INDEX)
+                            .id(hotelDoc.getId().toString())
+                            .document(hotelDoc)
+                    )
+            );
+            write(op);
+            write(hotelDoc);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int direct() {
+        encoder.reset();
+        for (Hotel hotel : hotels) {
+            encoder.create(INDEX, hotel);
+        }
+        return encoder.size();
+    }
+
+    private void write(Object value) {
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        mapper.serialize(value, generator);
+        generator.close();
+        out.write('\n');
+    }
+}
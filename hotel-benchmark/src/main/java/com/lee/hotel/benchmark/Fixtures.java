@@ -0,0 +1,90 @@
+package com.lee.hotel.benchmark;
+
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.RequestParams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 基准测试的固定输入，ES响应取自真实请求的录制结果，保证离线可运行
+ */
+public class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * 读取classpath下fixtures目录中的文件
+     *
+     * @param name
+     * @return
+     */
+    public static byte[] load(String name) {
+        try (InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (input == null) {
+                throw new IllegalStateException("fixture不存在：" + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 关键字、城市、品牌、价格都有的列表查询
+     */
+    public static RequestParams filteredParams() {
+        RequestParams params = new RequestParams();
+        params.setKey("外滩");
+        params.setPage(2);
+        params.setSize(10);
+        params.setCity("上海");
+        params.setBrand("如家");
+        params.setMinPrice(100);
+        params.setMaxPrice(300);
+        params.setLocation("31.21, 121.5");
+        return params;
+    }
+
+    /**
+     * 首页：没有任何条件
+     */
+    public static RequestParams emptyParams() {
+        RequestParams params = new RequestParams();
+        params.setPage(1);
+        params.setSize(10);
+        return params;
+    }
+
+    /**
+     * 商圈有多个值的酒店
+     */
+    public static Hotel hotel() {
+        Hotel hotel = new Hotel();
+        hotel.setId(38609L);
+        hotel.setName("速8酒店(上海赤峰路店)");
+        hotel.setAddress("广灵二路126号");
+        hotel.setPrice(249);
+        hotel.setScore(35);
+        hotel.setBrand("速8");
+        hotel.setCity("上海");
+        hotel.setStarName("二钻");
+        hotel.setBusiness("四川北路商业区、江湾、五角场商业区");
+        hotel.setLongitude("121.476461");
+        hotel.setLatitude("31.282444");
+        hotel.setPic("https://m.tuniucdn.com/fb2/t1/G1/M00/3E/40/Cii9EVkyLrKIXo1vAAHgrxo_pUcAALcKQLD688AAeDH564_w200_h200_c1_t0.jpg");
+        return hotel;
+    }
+}
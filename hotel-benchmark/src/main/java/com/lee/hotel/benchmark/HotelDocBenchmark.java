@@ -0,0 +1,34 @@
+package com.lee.hotel.benchmark;
+
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 数据库记录转ES文档：坐标拼接和自动补全字段的切割
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotelDocBenchmark {
+
+    private Hotel hotel;
+
+    @Setup
+    public void setUp() {
+        hotel = Fixtures.hotel();
+    }
+
+    @Benchmark
+    public HotelDoc newHotelDoc() {
+        return new HotelDoc(hotel);
+    }
+}
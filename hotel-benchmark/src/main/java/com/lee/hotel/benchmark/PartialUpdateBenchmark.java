@@ -0,0 +1,120 @@
+package com.lee.hotel.benchmark;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.UpdateAction;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.index.HotelPartialDoc;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.suggest.SuggestionTrie;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一批（1000条）只改价格的酒店变更在索引服务中的开销：
+ * 整个文档写入 + 重建本地自动补全 与 只写入price 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartialUpdateBenchmark {
+
+    private static final String INDEX = "hotel";
+
+    private static final Set<String> PRICE = Collections.singleton("price");
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+
+    private final SuggestionTrie trie = new SuggestionTrie();
+
+    private List<Hotel> hotels;
+
+    @Setup
+    public void setUp() {
+        hotels = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            Hotel hotel = Fixtures.hotel();
+            hotel.setId(38609L + i);
+            hotel.setBusiness(hotel.getBusiness() + "、商圈" + i);
+            hotel.setPrice(100 + i);
+            hotels.add(hotel);
+            for (String text : HotelDoc.buildSuggestion(hotel.getBrand(), hotel.getBusiness())) {
+                trie.add(text);
+            }
+        }
+    }
+
+    /**
+     * 改动前：发送整个文档，本地自动补全撤销旧值再加入新值
+     */
+    @Benchmark
+    public int fullDocument() {
+        out.reset();
+        for (Hotel hotel : hotels) {
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            BulkOperation op = BulkOperation.of(o -> o
+                    .index(idx -> idx
+                            .index(INDEX)
+                            .id(hotelDoc.getId().toString())
+                            .document(hotelDoc)
+                    )
+            );
+            write(op);
+            write(hotelDoc);
+            for (String text : hotelDoc.getSuggestion()) {
+                trie.remove(text);
+            }
+            for (String text : hotelDoc.getSuggestion()) {
+                trie.add(text);
+            }
+        }
+        return out.size();
+    }
+
+    /**
+     * 改动后：只发送price，本地自动补全不变
+     */
+    @Benchmark
+    public int partialPrice() {
+        out.reset();
+        for (Hotel hotel : hotels) {
+            // 仍然生成HotelDoc，供本地过滤项索引使用
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            Map<String, Object> partial = HotelPartialDoc.build(hotel, PRICE);
+            BulkOperation op = BulkOperation.of(o -> o
+                    .update(u -> u
+                            .index(INDEX)
+                            .id(hotelDoc.getId().toString())
+                            .action(a -> a.doc(partial).detectNoop(true))
+                    )
+            );
+            write(op);
+            write(UpdateAction.of(a -> a.doc(partial).detectNoop(true)));
+        }
+        return out.size();
+    }
+
+    private void write(Object value) {
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        mapper.serialize(value, generator);
+        generator.close();
+        out.write('\n');
+    }
+}
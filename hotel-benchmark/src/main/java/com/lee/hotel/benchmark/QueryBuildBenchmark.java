@@ -0,0 +1,162 @@
+package com.lee.hotel.benchmark;
+
+import co.elastic.clients.elasticsearch._types.DistanceUnit;
+import co.elastic.clients.elasticsearch._types.GeoDistanceSort;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.MatchQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonData;
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.query.HotelQueries;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 查询构建的基线对比：
+ * baseline：每次请求重新构建function_score、term过滤条件和聚合（HotelQueries之前HotelService的写法）
+ * precompiled：HotelQueries，广告加权、match_all、聚合只构建一次，term过滤条件按取值缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuildBenchmark {
+
+    /**
+     * empty：首页没有任何条件，filtered：关键字、城市、品牌、价格、坐标都有
+     */
+    @Param({"empty", "filtered"})
+    public String params;
+
+    private RequestParams requestParams;
+
+    @Setup
+    public void setUp() {
+        requestParams = "empty".equals(params) ? Fixtures.emptyParams() : Fixtures.filteredParams();
+    }
+
+    @Benchmark
+    public FunctionScoreQuery baselineQuery() {
+        return Baseline.buildBasicQuery(requestParams);
+    }
+
+    @Benchmark
+    public FunctionScoreQuery precompiledQuery() {
+        return HotelQueries.buildBasicQuery(requestParams);
+    }
+
+    /**
+     * /hotel/search的完整请求：查询、聚合和距离排序
+     */
+    @Benchmark
+    public SearchRequest baselineSearchRequest() {
+        FunctionScoreQuery functionScoreQuery = Baseline.buildBasicQuery(requestParams);
+        String location = requestParams.getLocation();
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index("hotel")
+                .query(q -> q.functionScore(functionScoreQuery))
+                .source(HotelQueries.LIST_SOURCE)
+                .from((requestParams.getPage() - 1) * requestParams.getSize())
+                .size(requestParams.getSize())
+                .aggregations(Baseline.buildAggregation());
+        if (location != null && !location.isEmpty()) {
+            builder.sort(t -> t.geoDistance(Baseline.buildGeoDistanceSort(location)));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public SearchRequest precompiledSearchRequest() {
+        String location = requestParams.getLocation();
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index("hotel")
+                .query(HotelQueries.buildQuery(requestParams, false))
+                .source(HotelQueries.LIST_SOURCE)
+                .from((requestParams.getPage() - 1) * requestParams.getSize())
+                .size(requestParams.getSize())
+                .aggregations(HotelQueries.FILTER_AGGREGATIONS);
+        if (location != null && !location.isEmpty()) {
+            builder.sort(t -> t.geoDistance(HotelQueries.buildGeoDistanceSort(location)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * HotelQueries之前的查询构建，保留作为对比基线
+     */
+    static class Baseline {
+
+        static FunctionScoreQuery buildBasicQuery(RequestParams params) {
+            String key = params.getKey();
+            Integer maxPrice = params.getMaxPrice();
+            Integer minPrice = params.getMinPrice();
+
+            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
+            if (key == null || key.isEmpty()) {
+                boolQueryBuilder.must(MatchAllQuery.of(m -> m)._toQuery());
+            } else {
+                boolQueryBuilder.must(MatchQuery.of(m -> m.field("all").query(key))._toQuery());
+            }
+            addTermFilter(boolQueryBuilder, "city", params.getCity());
+            addTermFilter(boolQueryBuilder, "brand", params.getBrand());
+            addTermFilter(boolQueryBuilder, "starName", params.getStarName());
+            if (maxPrice != null && minPrice != null) {
+                boolQueryBuilder.filter(RangeQuery.of(r -> r
+                        .field("price")
+                        .gte(JsonData.of(minPrice))
+                        .lte(JsonData.of(maxPrice))
+                )._toQuery());
+            }
+            Query query = boolQueryBuilder.build()._toQuery();
+
+            return new FunctionScoreQuery.Builder()
+                    .query(query)
+                    .functions(f -> f
+                            .filter(q -> q.term(t -> t.field("isAD").value(true)))
+                            .weight(10.0)
+                    )
+                    .boostMode(FunctionBoostMode.Multiply)
+                    .build();
+        }
+
+        static Map<String, Aggregation> buildAggregation() {
+            Map<String, Aggregation> aggregationMap = new HashMap<>();
+            for (String filterField : new String[]{"brand", "city", "starName"}) {
+                aggregationMap.put(filterField + "Agg",
+                        new Aggregation.Builder().terms(t -> t.field(filterField).size(100)).build());
+            }
+            return aggregationMap;
+        }
+
+        static GeoDistanceSort buildGeoDistanceSort(String location) {
+            return new GeoDistanceSort.Builder()
+                    .field("location")
+                    .location(l -> l.text(location))
+                    .order(SortOrder.Asc)
+                    .unit(DistanceUnit.Kilometers)
+                    .build();
+        }
+
+        private static void addTermFilter(BoolQuery.Builder boolQueryBuilder, String field, String value) {
+            if (value != null && !value.isEmpty()) {
+                boolQueryBuilder.filter(TermQuery.of(m -> m.field(field).value(value))._toQuery());
+            }
+        }
+    }
+}
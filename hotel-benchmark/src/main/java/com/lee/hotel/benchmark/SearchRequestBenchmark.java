@@ -0,0 +1,134 @@
+package com.lee.hotel.benchmark;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreQuery;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.query.HotelQueries;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 查询构建和请求序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchRequestBenchmark {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    private RequestParams emptyParams;
+
+    private RequestParams filteredParams;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+    @Setup
+    public void setUp() {
+        emptyParams = Fixtures.emptyParams();
+        filteredParams = Fixtures.filteredParams();
+    }
+
+    /**
+     * 完整请求的几种形态，与HotelService.buildSearchRequest的分支对应
+     */
+    @State(Scope.Benchmark)
+    public static class Shape {
+        /**
+         * 是否同时返回过滤项聚合（/hotel/search）
+         */
+        @Param({"false", "true"})
+        public boolean withAggregations;
+        /**
+         * 是否带坐标，带坐标时按距离排序
+         */
+        @Param({"false", "true"})
+        public boolean geo;
+
+        private RequestParams params;
+
+        private SearchRequest request;
+
+        @Setup
+        public void setUp() {
+            params = Fixtures.filteredParams();
+            if (!geo) {
+                params.setLocation(null);
+            }
+            request = buildRequest(params, withAggregations);
+        }
+    }
+
+    @Benchmark
+    public FunctionScoreQuery buildBasicQueryMatchAll() {
+        return HotelQueries.buildBasicQuery(emptyParams);
+    }
+
+    @Benchmark
+    public FunctionScoreQuery buildBasicQueryFiltered() {
+        return HotelQueries.buildBasicQuery(filteredParams);
+    }
+
+    @Benchmark
+    public BoolQuery buildRankFeatureQueryFiltered() {
+        return HotelQueries.buildRankFeatureQuery(filteredParams);
+    }
+
+    @Benchmark
+    public Map<String, Aggregation> buildAggregation() {
+        return HotelQueries.buildAggregation();
+    }
+
+    /**
+     * 按HotelService.buildSearchRequest的方式构建完整请求（function_score模式）
+     */
+    @Benchmark
+    public SearchRequest buildSearchRequest(Shape shape) {
+        return buildRequest(shape.params, shape.withAggregations);
+    }
+
+    @Benchmark
+    public int serializeSearchRequest(Shape shape) {
+        out.reset();
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        shape.request.serialize(generator, mapper);
+        generator.close();
+        return out.size();
+    }
+
+    /**
+     * 与HotelService.buildSearchRequest相同，timeout取search默认800ms预算的70%
+     */
+    private static SearchRequest buildRequest(RequestParams params, boolean withAggregations) {
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index("hotel")
+                .query(HotelQueries.buildQuery(params, false))
+                .source(HotelQueries.LIST_SOURCE)
+                .from((params.getPage() - 1) * params.getSize())
+                .size(params.getSize())
+                .timeout("560ms")
+                .allowPartialSearchResults(true);
+        if (withAggregations) {
+            builder.aggregations(HotelQueries.FILTER_AGGREGATIONS);
+        }
+        String location = params.getLocation();
+        if (location != null && !location.isEmpty()) {
+            builder.sort(t -> t.geoDistance(HotelQueries.buildGeoDistanceSort(location)));
+        }
+        return builder.build();
+    }
+}
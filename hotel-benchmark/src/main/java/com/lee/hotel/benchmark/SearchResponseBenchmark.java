@@ -0,0 +1,66 @@
+package com.lee.hotel.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.pojo.HotelListItem;
+import com.lee.hotel.pojo.PageResult;
+import com.lee.hotel.query.HotelResponses;
+import jakarta.json.stream.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 录制的ES响应经JacksonJsonpMapper反序列化，再解析成接口返回值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResponseBenchmark {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    private final JsonpDeserializer<SearchResponse<HotelListItem>> searchDeserializer =
+            SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(HotelListItem.class));
+
+    private final JsonpDeserializer<SearchResponse<Void>> filtersDeserializer =
+            SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Void.class));
+
+    private byte[] searchResponse;
+
+    private byte[] filtersResponse;
+
+    @Setup
+    public void setUp() {
+        searchResponse = Fixtures.load("search-response.json");
+        filtersResponse = Fixtures.load("filters-response.json");
+    }
+
+    /**
+     * 10条命中、按距离排序的列表页
+     */
+    @Benchmark
+    public PageResult handleSearchResponse() {
+        JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(searchResponse));
+        SearchResponse<HotelListItem> response = searchDeserializer.deserialize(parser, mapper);
+        return HotelResponses.toPageResult(response.hits(), true);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> handleFiltersResponse() {
+        JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(filtersResponse));
+        SearchResponse<Void> response = filtersDeserializer.deserialize(parser, mapper);
+        return HotelResponses.filters(response.aggregations());
+    }
+}
@@ -0,0 +1,137 @@
+package com.lee.hotel.budget;
+
+import java.util.function.LongSupplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 按调用次数滑动窗口统计失败率的熔断器
+ * CLOSED：正常放行，失败率超过阈值进入OPEN
+ * OPEN：拒绝所有调用，持续openMillis后进入HALF_OPEN
+ * HALF_OPEN：放行halfOpenCalls个试探调用，全部成功回到CLOSED，任意一个失败回到OPEN
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+
+    private final double failureRate;
+
+    private final long openMillis;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier clock;
+
+    /**
+     * 环形窗口，true表示失败
+     */
+    private final boolean[] window;
+
+    private int index;
+
+    private int count;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int halfOpenPermits;
+
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRate, long openMillis, int halfOpenCalls) {
+        this(windowSize, minimumCalls, failureRate, openMillis, halfOpenCalls, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRate, long openMillis, int halfOpenCalls, LongSupplier clock) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), window.length);
+        this.failureRate = failureRate;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+    }
+
+    /**
+     * 是否放行本次调用，放行后必须调用onSuccess或onFailure
+     *
+     * @return
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                reset();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (count >= minimumCalls && failures >= failureRate * count) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (count == window.length) {
+            // 窗口已满，先移出最早的一次
+            if (window[index]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        window[index] = failed;
+        if (failed) {
+            failures++;
+        }
+        index = (index + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        index = 0;
+        count = 0;
+        failures = 0;
+    }
+}
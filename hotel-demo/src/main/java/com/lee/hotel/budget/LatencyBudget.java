@@ -0,0 +1,273 @@
+package com.lee.hotel.budget;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.lee.hotel.cache.LocalCache;
+import com.lee.hotel.config.LatencyBudgetProperties;
+import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.pojo.PageResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 搜索接口的延迟预算：
+ * 1.ES端：请求带上timeout，超时的分片不再等待，返回部分结果
+ * 2.客户端：每个ES操作有截止时间，到期即失败，不再无限等待
+ * 3.熔断：按操作统计失败率，熔断期间不再请求ES，直接返回同一查询最近一次的成功结果
+ * 调用失败时同样返回最近一次的成功结果，都没有时才把异常抛给调用方
+ * 只有超时、网络异常和ES的5xx算作失败，参数错误、ES的4xx说明ES本身正常，直接抛给调用方，不兜底
+ */
+@Slf4j
+@Component
+public class LatencyBudget {
+
+    private final LatencyBudgetProperties properties;
+
+    private final MeterRegistry registry;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 每个查询最近一次的成功结果，key由调用方归一化，不随酒店变更失效
+     */
+    private final LocalCache<String, Object> stale;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LatencyBudget(LatencyBudgetProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        LatencyBudgetProperties.Stale staleProperties = properties.getStale();
+        this.stale = new LocalCache<>(staleProperties.getMaxSize(), staleProperties.getTtl().toMillis());
+    }
+
+    /**
+     * 操作的客户端截止时间
+     *
+     * @param op
+     * @return 未启用或未配置时返回null
+     */
+    public Duration deadline(String op) {
+        return properties.isEnabled() ? properties.getDeadline().get(op) : null;
+    }
+
+    /**
+     * 传给ES的timeout，如 "560ms"
+     *
+     * @param op
+     * @return 未启用或未配置时返回null，ES不限制
+     */
+    public String esTimeout(String op) {
+        Duration deadline = deadline(op);
+        if (deadline == null) {
+            return null;
+        }
+        return Math.max(1, (long) (deadline.toMillis() * properties.getEsTimeoutRatio())) + "ms";
+    }
+
+    /**
+     * 给异步调用加上截止时间，到期时以TimeoutException失败，并取消原调用释放连接
+     *
+     * @param op
+     * @param future
+     * @return
+     */
+    public <T> CompletableFuture<T> within(String op, CompletableFuture<T> future) {
+        Duration deadline = deadline(op);
+        if (deadline == null || future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> task = timer.schedule(() -> {
+            result.completeExceptionally(new TimeoutException("ES " + op + "超过" + deadline.toMillis() + "ms未返回"));
+            future.cancel(true);
+        }, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        future.whenComplete((v, e) -> {
+            task.cancel(false);
+            if (e == null) {
+                result.complete(v);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 在熔断器保护下执行调用
+     *
+     * @param op   ES操作，每个操作一个熔断器
+     * @param key  归一化的查询key，为null时不保存结果，失败时也没有兜底
+     * @param call
+     * @return
+     */
+    public <T> T call(String op, String key, Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        CircuitBreaker breaker = breaker(op);
+        if (!breaker.tryAcquire()) {
+            return fallback(op, key, null);
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            if (!isFailure(e)) {
+                breaker.onSuccess();
+                throw unwrap(e);
+            }
+            breaker.onFailure();
+            return fallback(op, key, e);
+        }
+        breaker.onSuccess();
+        remember(key, result);
+        return result;
+    }
+
+    public <T> CompletableFuture<T> callAsync(String op, String key, Supplier<CompletableFuture<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        CircuitBreaker breaker = breaker(op);
+        if (!breaker.tryAcquire()) {
+            return fallbackAsync(op, key, null);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            if (!isFailure(e)) {
+                breaker.onSuccess();
+                return failedFuture(unwrap(e));
+            }
+            breaker.onFailure();
+            return fallbackAsync(op, key, e);
+        }
+        return future.handle((result, e) -> {
+            if (e != null && !isFailure(e)) {
+                breaker.onSuccess();
+                return this.<T>failedFuture(unwrap(e));
+            }
+            if (e != null) {
+                breaker.onFailure();
+                return this.<T>fallbackAsync(op, key, e);
+            }
+            breaker.onSuccess();
+            remember(key, result);
+            return CompletableFuture.completedFuture(result);
+        }).thenCompose(f -> f);
+    }
+
+    /**
+     * 是否计入熔断器的失败并兜底：超时、网络异常、ES的5xx
+     *
+     * @param e
+     * @return
+     */
+    static boolean isFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || t instanceof IOException) {
+                return true;
+            }
+            if (t instanceof ElasticsearchException) {
+                return ((ElasticsearchException) t).status() >= 500;
+            }
+        }
+        return false;
+    }
+
+    public CircuitBreaker.State state(String op) {
+        CircuitBreaker breaker = breakers.get(op);
+        return breaker == null ? CircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    private CircuitBreaker breaker(String op) {
+        return breakers.computeIfAbsent(op, k -> {
+            LatencyBudgetProperties.Breaker b = properties.getBreaker();
+            CircuitBreaker breaker = new CircuitBreaker(b.getWindowSize(), b.getMinimumCalls(), b.getFailureRate(),
+                    b.getOpenDuration().toMillis(), b.getHalfOpenCalls());
+            // 0关闭，1熔断，2半开
+            Gauge.builder("hotel.budget.breaker.state", breaker, cb -> cb.getState().ordinal())
+                    .description("ES调用熔断器状态")
+                    .tag("op", k)
+                    .register(registry);
+            return breaker;
+        });
+    }
+
+    private void remember(String key, Object result) {
+        // ES超时返回的部分结果不作为兜底
+        if (key == null || result == null || result instanceof PageResult && ((PageResult) result).isPartial()) {
+            return;
+        }
+        stale.put(key, result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T fallback(String op, String key, Throwable e) {
+        Object value = key == null ? null : stale.getIfPresent(key);
+        registry.counter("hotel.budget.fallback", "op", op,
+                "reason", e == null ? "open" : "error",
+                "outcome", value == null ? "none" : "stale").increment();
+        if (value != null) {
+            log.warn("ES {}{}，返回最近一次的结果：{}", op, e == null ? "已熔断" : "失败", key);
+            return (T) value;
+        }
+        if (e == null) {
+            throw new ExploException("搜索服务繁忙，请稍后重试");
+        }
+        throw unwrap(e);
+    }
+
+    private static RuntimeException unwrap(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new CompletionException(cause);
+    }
+
+    private <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private <T> CompletableFuture<T> fallbackAsync(String op, String key, Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(fallback(op, key, e));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+}
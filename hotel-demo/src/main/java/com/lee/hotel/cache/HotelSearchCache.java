@@ -0,0 +1,93 @@
+package com.lee.hotel.cache;
+
+import com.lee.hotel.config.SearchCacheProperties;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.pojo.PageResult;
+import com.lee.hotel.pojo.RequestParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * /hotel/list 搜索结果缓存
+ * 酒店数据变更写入ES后整体失效，TTL兜底保证数据延迟有上限
+ */
+@Slf4j
+@Component
+public class HotelSearchCache {
+
+    private final SearchCacheProperties properties;
+
+    private final LocalCache<String, PageResult> cache;
+
+    public HotelSearchCache(SearchCacheProperties properties) {
+        this.properties = properties;
+        this.cache = new LocalCache<>(properties.getMaxSize(), properties.getTtl().toMillis());
+    }
+
+    /**
+     * 查询缓存，未命中时执行搜索并写入缓存
+     *
+     * @param scope  区分不同接口的结果，如list、listWithFilters
+     * @param params
+     * @param loader
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends PageResult> T get(String scope, RequestParams params, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        // ES超时返回的部分结果不缓存
+        return (T) cache.get(key(scope, params), loader::get, v -> !v.isPartial());
+    }
+
+    /**
+     * 查询缓存，未命中时异步执行搜索，完成后写入缓存
+     *
+     * @param scope
+     * @param params
+     * @param loader
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends PageResult> CompletableFuture<T> getAsync(String scope, RequestParams params, Supplier<CompletableFuture<T>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        return cache.getAsync(key(scope, params), () -> (CompletableFuture<PageResult>) loader.get(), v -> !v.isPartial())
+                .thenApply(v -> (T) v);
+    }
+
+    /**
+     * 缓存key：接口 + 归一化的查询条件
+     *
+     * @param scope
+     * @param params
+     * @return
+     */
+    public String key(String scope, RequestParams params) {
+        return scope + ":" + SearchKeys.searchKey(params, properties.getLocationScale());
+    }
+
+    /**
+     * 酒店数据变更，缓存整体失效
+     *
+     * @param event
+     */
+    @EventListener
+    public void onHotelIndexed(HotelIndexedEvent event) {
+        cache.invalidateAll();
+        log.debug("酒店{}已变更，搜索缓存失效", event.getId());
+    }
+
+    public LocalCache<String, PageResult> getCache() {
+        return cache;
+    }
+}
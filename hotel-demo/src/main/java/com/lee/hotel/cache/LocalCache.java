@@ -0,0 +1,179 @@
+package com.lee.hotel.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 进程内本地缓存：按容量（LRU）和过期时间（TTL）淘汰
+ * 通过版本号实现整体失效，避免失效前发起的加载把旧数据写回缓存
+ */
+public class LocalCache<K, V> {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<K, Entry<V>> map;
+
+    /**
+     * 缓存版本号，每次整体失效时递增
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        // accessOrder = true，按访问顺序排列，实现LRU
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LocalCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 查询缓存，未命中或已过期返回null
+     *
+     * @param key
+     * @return
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry;
+        synchronized (map) {
+            entry = map.get(key);
+            if (entry != null && entry.expireAt < System.currentTimeMillis()) {
+                map.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * 查询缓存，未命中时调用loader加载并写入缓存
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    public V get(K key, Supplier<V> loader) {
+        return get(key, loader, v -> true);
+    }
+
+    /**
+     * 查询缓存，未命中时调用loader加载，满足cacheable时写入缓存
+     *
+     * @param key
+     * @param loader
+     * @param cacheable
+     * @return
+     */
+    public V get(K key, Supplier<V> loader, Predicate<V> cacheable) {
+        // 加载前先记录版本号，加载期间发生失效则不写回
+        long version = generation.get();
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.get();
+        if (value != null && cacheable.test(value)) {
+            put(key, value, version);
+        }
+        return value;
+    }
+
+    /**
+     * 查询缓存，未命中时异步加载，加载完成后写入缓存
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    public CompletableFuture<V> getAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        return getAsync(key, loader, v -> true);
+    }
+
+    public CompletableFuture<V> getAsync(K key, Supplier<CompletableFuture<V>> loader, Predicate<V> cacheable) {
+        long version = generation.get();
+        V value = getIfPresent(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        return loader.get().thenApply(v -> {
+            if (v != null && cacheable.test(v)) {
+                put(key, v, version);
+            }
+            return v;
+        });
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+        put(key, value, generation.get());
+    }
+
+    private void put(K key, V value, long version) {
+        synchronized (map) {
+            if (version != generation.get()) {
+                return;
+            }
+            map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * 整体失效
+     */
+    public void invalidateAll() {
+        synchronized (map) {
+            generation.incrementAndGet();
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.lee.hotel.cache;
+
+import com.lee.hotel.config.HotelSearchProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * /hotel/suggestion、/hotel/filters的并发请求合并
+ * 流量高峰时大量用户同时输入相同的前缀、打开相同的过滤项，相同的请求只查询一次ES
+ * 每个接口记录：
+ * hotel.coalesce.calls        请求数，outcome=leader表示真正查询了ES，outcome=shared表示共享了其他请求的结果
+ * hotel.coalesce.dedup.ratio  被合并掉的请求占比
+ */
+@Component
+public class QueryCoalescer {
+
+    private final HotelSearchProperties properties;
+
+    private final MeterRegistry registry;
+
+    private final Map<String, SingleFlight<String, Object>> flights = new ConcurrentHashMap<>();
+
+    public QueryCoalescer(HotelSearchProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * 合并相同key的并发调用
+     *
+     * @param op   接口，如suggest、filters
+     * @param key  归一化的查询条件
+     * @param call
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V run(String op, String key, Supplier<V> call) {
+        if (!properties.isCoalesce()) {
+            return call.get();
+        }
+        return (V) flight(op).run(key, call::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> runAsync(String op, String key, Supplier<CompletableFuture<V>> call) {
+        if (!properties.isCoalesce()) {
+            return call.get();
+        }
+        return flight(op).runAsync(key, () -> (CompletableFuture<Object>) call.get()).thenApply(v -> (V) v);
+    }
+
+    private SingleFlight<String, Object> flight(String op) {
+        return flights.computeIfAbsent(op, k -> {
+            SingleFlight<String, Object> flight = new SingleFlight<>();
+            FunctionCounter.builder("hotel.coalesce.calls", flight, f -> f.getCalls() - f.getShared())
+                    .description("合并后真正执行的请求数")
+                    .tags("op", k, "outcome", "leader")
+                    .register(registry);
+            FunctionCounter.builder("hotel.coalesce.calls", flight, SingleFlight::getShared)
+                    .description("共享了其他请求结果的请求数")
+                    .tags("op", k, "outcome", "shared")
+                    .register(registry);
+            Gauge.builder("hotel.coalesce.dedup.ratio", flight, SingleFlight::dedupRatio)
+                    .description("被合并掉的请求占比")
+                    .tag("op", k)
+                    .register(registry);
+            return flight;
+        });
+    }
+}
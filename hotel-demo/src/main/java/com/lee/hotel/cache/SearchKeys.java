@@ -0,0 +1,113 @@
+package com.lee.hotel.cache;
+
+import com.lee.hotel.pojo.RequestParams;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 把RequestParams归一化成稳定的字符串key
+ * 语义相同的请求（关键字前后空格、坐标的微小差异等）得到同一个key
+ * 每个字段以长度为前缀，用户输入中含有分隔符时不会与其他条件组合得到相同的key
+ */
+public class SearchKeys {
+
+    private SearchKeys() {
+    }
+
+    /**
+     * 搜索结果的key：关键字、分页、过滤条件、排序、坐标
+     *
+     * @param params
+     * @param locationScale 坐标保留的小数位数
+     * @return
+     */
+    public static String searchKey(RequestParams params, int locationScale) {
+        StringBuilder sb = new StringBuilder(128);
+        append(sb, normalize(params.getKey()));
+        append(sb, params.getPage());
+        append(sb, params.getSize());
+        append(sb, normalize(params.getSortBy()));
+        appendFilters(sb, params);
+        append(sb, roundLocation(params.getLocation(), locationScale));
+        return sb.toString();
+    }
+
+    /**
+     * 关键字和过滤条件的key，不含分页、排序和坐标
+     *
+     * @param params
+     * @return
+     */
+    public static String filterKey(RequestParams params) {
+        StringBuilder sb = new StringBuilder(64);
+        append(sb, normalize(params.getKey()));
+        appendFilters(sb, params);
+        return sb.toString();
+    }
+
+    /**
+     * 由关键字和过滤条件得到的preference，相同条件的请求总是落到相同的分片副本上，
+     * 重复的聚合查询可以命中该副本的请求缓存
+     *
+     * @param params
+     * @return 不以下划线开头，ES不会当作内置的preference
+     */
+    public static String preference(RequestParams params) {
+        return "f" + Integer.toHexString(filterKey(params).hashCode());
+    }
+
+    private static void appendFilters(StringBuilder sb, RequestParams params) {
+        append(sb, normalize(params.getCity()));
+        append(sb, normalize(params.getBrand()));
+        append(sb, normalize(params.getStarName()));
+        // 与buildBasicQuery保持一致：最高价和最低价都存在时价格条件才生效
+        if (params.getMinPrice() != null && params.getMaxPrice() != null) {
+            append(sb, params.getMinPrice());
+            append(sb, params.getMaxPrice());
+        } else {
+            append(sb, null);
+            append(sb, null);
+        }
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (sb.length() > 0) {
+            sb.append('|');
+        }
+        if (value != null) {
+            String text = value.toString();
+            sb.append(text.length()).append(':').append(text);
+        }
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value.trim() : null;
+    }
+
+    /**
+     * 坐标格式为 "纬度, 经度"，按指定小数位数四舍五入
+     */
+    private static String roundLocation(String location, int scale) {
+        if (!StringUtils.hasText(location)) {
+            return null;
+        }
+        String[] arr = location.split(",");
+        if (arr.length != 2) {
+            return location.trim();
+        }
+        try {
+            return round(arr[0], scale) + "," + round(arr[1], scale);
+        } catch (NumberFormatException e) {
+            return location.trim();
+        }
+    }
+
+    private static String round(String value, int scale) {
+        return new BigDecimal(value.trim()).setScale(scale, RoundingMode.HALF_UP).toPlainString();
+    }
+}
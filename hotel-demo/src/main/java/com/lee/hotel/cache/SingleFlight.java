@@ -0,0 +1,120 @@
+package com.lee.hotel.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 合并相同key的并发调用：同一时刻只有第一个调用真正执行，其余调用共享它的结果
+ * 调用完成后立即移除，之后的调用重新执行，不起缓存的作用
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 执行调用，有相同key的调用正在执行时等待它的结果
+     *
+     * @param key
+     * @param call
+     * @return
+     */
+    public V run(K key, Supplier<V> call) {
+        calls.incrementAndGet();
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            shared.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            V value = call.get();
+            inFlight.remove(key, promise);
+            promise.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 异步执行调用，有相同key的调用正在执行时共享它的future
+     *
+     * @param key
+     * @param call
+     * @return
+     */
+    public CompletableFuture<V> runAsync(K key, Supplier<CompletableFuture<V>> call) {
+        calls.incrementAndGet();
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            shared.incrementAndGet();
+            // 每个调用方拿到各自的future，一方取消不影响其他调用方
+            return existing.thenApply(v -> v);
+        }
+        CompletableFuture<V> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+            return promise.thenApply(v -> v);
+        }
+        future.whenComplete((v, e) -> {
+            // 先移除再完成，完成之后的调用不会拿到已完成的旧结果
+            inFlight.remove(key, promise);
+            if (e == null) {
+                promise.complete(v);
+            } else {
+                promise.completeExceptionally(e);
+            }
+        });
+        return promise.thenApply(v -> v);
+    }
+
+    /**
+     * 调用总次数
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * 共享了其他调用结果的次数
+     */
+    public long getShared() {
+        return shared.get();
+    }
+
+    /**
+     * 被合并掉的调用占比
+     */
+    public double dedupRatio() {
+        long total = calls.get();
+        return total == 0 ? 0 : (double) shared.get() / total;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -1,33 +1,123 @@
 package com.lee.hotel.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
-import org.springframework.beans.factory.annotation.Value;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.NodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author LiJing
  * @version 1.0
+ * <p>
+ * 请求失败的节点由RestClient拉黑，按1分钟起、最长30分钟指数退避后再重试，期间请求轮询其余节点
  */
+@Slf4j
 @Configuration
 public class ElasticSearchConfig {
 
-    @Value("${es.host}")
-    private String host;
+    private final EsProperties properties;
+
+    /**
+     * 节点请求失败时触发一次节点发现，未开启节点发现时只记录日志
+     */
+    private final SniffOnFailureListener failureListener = new SniffOnFailureListener() {
+        @Override
+        public void onFailure(Node node) {
+            log.warn("ES节点请求失败，暂时拉黑：{}", node.getHost());
+            if (properties.getSniff().isEnabled()) {
+                super.onFailure(node);
+            }
+        }
+    };
+
+    public ElasticSearchConfig(EsProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean(destroyMethod = "close")
+    public RestClient restClient() {
+        RestClientBuilder builder = RestClient.builder(hosts())
+                .setCompressionEnabled(properties.isCompression())
+                // 跳过专用master节点，只把请求发给数据节点
+                .setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS)
+                .setFailureListener(failureListener)
+                .setRequestConfigCallback(c -> c
+                        .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) properties.getSocketTimeout().toMillis())
+                )
+                .setHttpClientConfigCallback(c -> c
+                        .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                        .setMaxConnTotal(properties.getMaxConnTotal())
+                        .setKeepAliveStrategy((response, context) -> properties.getKeepAlive().toMillis())
+                        .setDefaultIOReactorConfig(IOReactorConfig.custom().setSoKeepAlive(true).build())
+                );
+        return builder.build();
+    }
 
-    @Value("${es.port}")
-    private int port;
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "es.sniff", name = "enabled", havingValue = "true")
+    public Sniffer sniffer(RestClient restClient) {
+        EsProperties.Sniff sniff = properties.getSniff();
+        NodesSniffer nodesSniffer = new ElasticsearchNodesSniffer(restClient,
+                ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
+                ElasticsearchNodesSniffer.Scheme.valueOf(properties.getScheme().toUpperCase()));
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setNodesSniffer(nodesSniffer)
+                .setSniffIntervalMillis((int) sniff.getInterval().toMillis())
+                .setSniffAfterFailureDelayMillis((int) sniff.getAfterFailureDelay().toMillis())
+                .build();
+        failureListener.setSniffer(sniffer);
+        return sniffer;
+    }
 
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
-        RestClient client = RestClient.builder(new HttpHost(host, port, "http")).build();
-        ElasticsearchTransport transport = new RestClientTransport(client, new JacksonJsonpMapper());
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
+        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    }
+
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
 
+    /**
+     * 与同步客户端共用同一个transport和连接池，请求在IO线程上完成，不占用Tomcat工作线程
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    private HttpHost[] hosts() {
+        List<HttpHost> hosts = new ArrayList<>();
+        for (String host : properties.getHosts()) {
+            if (StringUtils.hasText(host)) {
+                hosts.add(HttpHost.create(host.contains("://") ? host.trim() : properties.getScheme() + "://" + host.trim()));
+            }
+        }
+        if (hosts.isEmpty()) {
+            hosts.add(new HttpHost(properties.getHost(), properties.getPort(), properties.getScheme()));
+        }
+        return hosts.toArray(new HttpHost[0]);
+    }
+
 }
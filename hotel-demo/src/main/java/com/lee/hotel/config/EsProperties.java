@@ -0,0 +1,75 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * ElasticSearch连接配置
+ */
+@Component
+@ConfigurationProperties(prefix = "es")
+@Data
+public class EsProperties {
+    /**
+     * 集群节点，格式为 host:port，为空时使用host和port
+     */
+    private List<String> hosts = new ArrayList<>();
+    /**
+     * 单节点地址，兼容旧配置
+     */
+    private String host;
+    private int port = 9200;
+    private String scheme = "http";
+    /**
+     * 建立连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    /**
+     * 读取响应超时时间
+     */
+    private Duration socketTimeout = Duration.ofSeconds(30);
+    /**
+     * 每个节点的最大连接数，HttpClient默认只有2个
+     */
+    private int maxConnPerRoute = 50;
+    /**
+     * 所有节点的最大连接总数
+     */
+    private int maxConnTotal = 200;
+    /**
+     * 空闲连接的保活时间，应小于服务端和中间负载均衡的空闲超时
+     */
+    private Duration keepAlive = Duration.ofMinutes(5);
+    /**
+     * 是否gzip压缩请求体并接受gzip响应
+     */
+    private boolean compression = true;
+    /**
+     * 节点发现
+     */
+    private Sniff sniff = new Sniff();
+
+    @Data
+    public static class Sniff {
+        /**
+         * 是否定期从集群发现节点
+         */
+        private boolean enabled = false;
+        /**
+         * 发现节点的间隔
+         */
+        private Duration interval = Duration.ofMinutes(5);
+        /**
+         * 节点请求失败后立即重新发现，之后按这个间隔再发现一次
+         */
+        private Duration afterFailureDelay = Duration.ofMinutes(1);
+    }
+}
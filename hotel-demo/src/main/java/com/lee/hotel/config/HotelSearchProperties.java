@@ -0,0 +1,92 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店搜索配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.search")
+@Data
+public class HotelSearchProperties {
+    /**
+     * 游标分页point-in-time的保活时间，需要大于用户翻两页之间的间隔
+     */
+    private String pitKeepAlive = "1m";
+    /**
+     * 是否使用进程内的拼音前缀树做自动补全，关闭或未加载完成时查询ES
+     */
+    private boolean localSuggest = true;
+    /**
+     * 没有关键字时是否用进程内的位图索引计算过滤项
+     */
+    private boolean localFacets = true;
+    /**
+     * 位图索引的价格区间宽度
+     */
+    private int priceBucketWidth = 100;
+    /**
+     * 接口是否走异步的ES客户端，Tomcat线程在等待ES响应期间不被占用
+     */
+    private boolean async = true;
+    /**
+     * 列表查询是否使用注册在ES的搜索模板，只发送模板id和参数
+     */
+    private boolean template = false;
+    /**
+     * 广告加权是否使用索引时写入的rank_feature字段，代替查询时执行的function_score
+     * 开启前需要用新的mapping重建索引，adRank由tb_hotel.is_ad生成
+     * 有关键字时广告是加分而不是乘以10，排序与function_score略有差异
+     */
+    private boolean rankFeature = false;
+    /**
+     * 过滤项的聚合查询是否使用ES的分片请求缓存，并按过滤条件固定preference
+     */
+    private boolean facetRequestCache = true;
+    /**
+     * 是否合并相同的并发自动补全、过滤项请求，只查询一次ES
+     */
+    private boolean coalesce = true;
+    /**
+     * 附近的酒店
+     */
+    private Nearby nearby = new Nearby();
+
+    @Data
+    public static class Nearby {
+        /**
+         * 带坐标的列表查询是否按geohash格子查询附近的酒店
+         */
+        private boolean enabled = true;
+        /**
+         * geohash长度，6位约为1.2km x 0.6km
+         */
+        private int precision = 6;
+        /**
+         * 依次扩大的查询半径，单位公里，命中足够时停止
+         */
+        private List<Double> radiusKm = new ArrayList<>(Arrays.asList(3.0, 10.0, 30.0, 100.0));
+        /**
+         * 每个格子最多缓存的候选数，翻页超过时走普通查询
+         */
+        private int maxCandidates = 200;
+        /**
+         * 最多缓存的格子数
+         */
+        private int cacheSize = 5000;
+        /**
+         * 格子缓存的过期时间
+         */
+        private Duration cacheTtl = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,121 @@
+package com.lee.hotel.config;
+
+import com.lee.hotel.mq.FailureType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * MQ同步索引配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.index")
+@Data
+public class IndexProperties {
+    /**
+     * 一批最多包含的消息数，攒够即写入
+     */
+    private int batchSize = 500;
+    /**
+     * 一批从第一条消息到达起的最长等待时间，超时后不足一批也写入
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+    /**
+     * 全量重建索引
+     */
+    private Reindex reindex = new Reindex();
+    /**
+     * 按酒店id分道并行消费
+     */
+    private Sharded sharded = new Sharded();
+    /**
+     * 写入失败的重试
+     */
+    private Retry retry = new Retry();
+
+    @Data
+    public static class Reindex {
+        /**
+         * 并行读取数据库的线程数，每个线程负责一段id范围
+         */
+        private int workers = 4;
+        /**
+         * 每个线程每次读取并写入的条数
+         */
+        private int pageSize = 1000;
+        /**
+         * 导入完成后恢复的副本数
+         */
+        private String replicas = "1";
+        /**
+         * 导入完成后恢复的刷新间隔
+         */
+        private String refreshInterval = "1s";
+        /**
+         * 是否把数据库记录直接编码成_bulk请求体，关闭时经过HotelDoc和Jackson
+         */
+        private boolean directEncode = true;
+    }
+
+    @Data
+    public static class Sharded {
+        /**
+         * 是否开启，关闭时使用单线程的批量消费
+         */
+        private boolean enabled = false;
+        /**
+         * 道数，同一家酒店的变更总是进入同一条道
+         */
+        private int lanes = Runtime.getRuntime().availableProcessors();
+        /**
+         * 每条道的队列容量，队列满时暂停从MQ取消息
+         */
+        private int laneCapacity = 1000;
+        /**
+         * MQ预取数，即未确认消息数的上限
+         */
+        private int prefetch = 2000;
+        /**
+         * 每条道每次写入ES的最大条数
+         */
+        private int batchSize = 200;
+        /**
+         * 转发重试消息失败时原地重试的间隔
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Retry {
+        /**
+         * 各级延迟重试队列的延迟，第n次重试进入第n级，超出时使用最后一级
+         */
+        private List<Duration> delays = Arrays.asList(Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(30), Duration.ofMinutes(2), Duration.ofMinutes(10));
+        /**
+         * 各类失败的最大重试次数，超过后转入parking队列
+         */
+        private Map<FailureType, Integer> maxAttempts = defaultMaxAttempts();
+
+        private static Map<FailureType, Integer> defaultMaxAttempts() {
+            Map<FailureType, Integer> maxAttempts = new EnumMap<>(FailureType.class);
+            maxAttempts.put(FailureType.TRANSIENT, 8);
+            maxAttempts.put(FailureType.REJECTED, 1);
+            maxAttempts.put(FailureType.MALFORMED, 0);
+            return maxAttempts;
+        }
+
+        public int maxAttempts(FailureType type) {
+            return maxAttempts.getOrDefault(type, 0);
+        }
+    }
+}
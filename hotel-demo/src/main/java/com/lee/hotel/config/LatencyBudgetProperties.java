@@ -0,0 +1,83 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 搜索接口的延迟预算配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.budget")
+@Data
+public class LatencyBudgetProperties {
+    /**
+     * 是否启用延迟预算、熔断和过期结果兜底
+     */
+    private boolean enabled = true;
+    /**
+     * 每个ES操作的客户端截止时间，未配置的操作（写入、bulk等）不限制
+     */
+    private Map<String, Duration> deadline = new LinkedHashMap<>();
+    /**
+     * 传给ES的timeout占截止时间的比例，留出网络和反序列化的时间
+     */
+    private double esTimeoutRatio = 0.7;
+    /**
+     * 熔断器
+     */
+    private Breaker breaker = new Breaker();
+    /**
+     * 最近一次成功结果的保存
+     */
+    private Stale stale = new Stale();
+
+    public LatencyBudgetProperties() {
+        deadline.put("search", Duration.ofMillis(800));
+        deadline.put("filters", Duration.ofMillis(500));
+        deadline.put("suggest", Duration.ofMillis(300));
+    }
+
+    @Data
+    public static class Breaker {
+        /**
+         * 统计失败率的滑动窗口，按调用次数计
+         */
+        private int windowSize = 20;
+        /**
+         * 窗口内至少有这么多次调用才计算失败率
+         */
+        private int minimumCalls = 10;
+        /**
+         * 失败率达到该值时熔断
+         */
+        private double failureRate = 0.5;
+        /**
+         * 熔断持续时间，之后放行少量请求试探
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+        /**
+         * 半开状态放行的试探请求数，全部成功才恢复
+         */
+        private int halfOpenCalls = 3;
+    }
+
+    @Data
+    public static class Stale {
+        /**
+         * 最多保存的查询数
+         */
+        private int maxSize = 10000;
+        /**
+         * 保存时间，超过后不再用于兜底
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+}
@@ -1,13 +1,26 @@
 package com.lee.hotel.config;
 
 import com.lee.hotel.constants.MqConstants;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author LiJing
  * @version 1.0
@@ -29,6 +42,33 @@ public class MqConfig {
         return new Queue(MqConstants.HOTEL_DELETE_QUEUE, true);
     }
 
+    /**
+     * 多次重试仍失败的消息
+     */
+    @Bean
+    public Queue parkingQueue() {
+        return new Queue(MqConstants.HOTEL_PARKING_QUEUE, true);
+    }
+
+    /**
+     * 每个业务队列、每级延迟一个重试队列
+     * 消息在重试队列中过期后，经默认交换机死信回原队列，不经过hotel.topic，不会重复投递给其他订阅方
+     */
+    @Bean
+    public Declarables retryQueues(IndexProperties properties) {
+        List<Declarable> queues = new ArrayList<>();
+        for (String queue : new String[]{MqConstants.HOTEL_INSERT_QUEUE, MqConstants.HOTEL_DELETE_QUEUE}) {
+            for (Duration delay : properties.getRetry().getDelays()) {
+                queues.add(QueueBuilder.durable(MqConstants.retryQueue(queue, delay.toMillis()))
+                        .ttl((int) delay.toMillis())
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build());
+            }
+        }
+        return new Declarables(queues);
+    }
+
     @Bean
     public Binding insertQueueBinding() {
         return BindingBuilder.bind(insertQueue()).to(topicExchange()).with(MqConstants.HOTEL_INSERT_KEY);
@@ -38,4 +78,58 @@ public class MqConfig {
     public Binding deleteQueueBinding() {
         return BindingBuilder.bind(deleteQueue()).to(topicExchange()).with(MqConstants.HOTEL_DELETE_KEY);
     }
+
+    /**
+     * 每个实例一个匿名队列，接收全部新增、修改和删除，用于同步进程内的过滤项、自动补全索引
+     * 非持久、独占，实例停止后自动删除
+     */
+    @Bean
+    public AnonymousQueue broadcastQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy(MqConstants.HOTEL_BROADCAST_QUEUE_PREFIX));
+    }
+
+    @Bean
+    public Binding broadcastInsertBinding() {
+        return BindingBuilder.bind(broadcastQueue()).to(topicExchange()).with(MqConstants.HOTEL_INSERT_KEY);
+    }
+
+    @Bean
+    public Binding broadcastDeleteBinding() {
+        return BindingBuilder.bind(broadcastQueue()).to(topicExchange()).with(MqConstants.HOTEL_DELETE_KEY);
+    }
+
+    /**
+     * 攒批消费的监听容器：逐条交给监听方法，由监听方法按数量或时间窗口攒批写入后手动确认
+     * 容器自带的批量消费只在两条消息的间隔超过receiveTimeout时结束一批，持续的少量消息会让一批一直等到攒满
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            IndexProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // 未确认的消息数由预取数限制，不能小于批大小，否则永远攒不满一批
+        factory.setPrefetchCount(properties.getBatchSize());
+        return factory;
+    }
+
+    /**
+     * 分道消费的监听容器：单个消费者逐条取消息分发到各条道，各道写入ES后手动确认
+     * 只用一个消费者，消息进入各条道的顺序与队列中的顺序一致
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory shardedContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            IndexProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setPrefetchCount(properties.getSharded().getPrefetch());
+        return factory;
+    }
 }
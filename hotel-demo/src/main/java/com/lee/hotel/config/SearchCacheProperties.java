@@ -0,0 +1,35 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 搜索结果缓存配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.cache.search")
+@Data
+public class SearchCacheProperties {
+    /**
+     * 是否开启搜索结果缓存
+     */
+    private boolean enabled = true;
+    /**
+     * 最大缓存条数
+     */
+    private int maxSize = 10000;
+    /**
+     * 过期时间，即缓存结果与索引之间允许的最大延迟
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+    /**
+     * 坐标保留的小数位数，3位约等于100米
+     */
+    private int locationScale = 3;
+}
@@ -0,0 +1,39 @@
+package com.lee.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 慢查询日志配置
+ */
+@Component
+@ConfigurationProperties(prefix = "hotel.slowlog")
+@Data
+public class SlowQueryProperties {
+    /**
+     * 是否记录慢查询
+     */
+    private boolean enabled = true;
+    /**
+     * 客户端耗时超过该值记为慢查询
+     */
+    private Duration threshold = Duration.ofMillis(500);
+    /**
+     * 最多保留的慢查询条数，超过后覆盖最早的
+     */
+    private int capacity = 256;
+    /**
+     * 慢查询中带profile重放的比例，0表示不重放
+     */
+    private double profileSampleRate = 0.1;
+    /**
+     * 同时进行的重放数上限，避免慢查询集中出现时加重ES负担
+     */
+    private int maxConcurrentProfiles = 2;
+}
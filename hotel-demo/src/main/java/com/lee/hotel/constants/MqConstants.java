@@ -29,4 +29,46 @@ public class MqConstants {
      * 删除的RoutingKey
      */
     public final static String HOTEL_DELETE_KEY = "hotel.delete";
+
+    /**
+     * 每个实例一个的广播队列的名称前缀，后面是随机串
+     */
+    public final static String HOTEL_BROADCAST_QUEUE_PREFIX = "hotel.broadcast.";
+
+    /**
+     * 多次重试仍失败的消息，等待排查后重放
+     */
+    public final static String HOTEL_PARKING_QUEUE = "hotel.parking.queue";
+
+    /**
+     * 消息最初所在的队列，重试和重放时发回该队列
+     */
+    public final static String HEADER_ORIGINAL_QUEUE = "x-original-queue";
+
+    /**
+     * 已经重试的次数
+     */
+    public final static String HEADER_RETRY_COUNT = "x-retry-count";
+
+    /**
+     * 最近一次失败的类型
+     */
+    public final static String HEADER_FAILURE_TYPE = "x-failure-type";
+
+    /**
+     * 最近一次失败的原因
+     */
+    public final static String HEADER_FAILURE_REASON = "x-failure-reason";
+
+    /**
+     * 延迟重试队列的名称：原队列.retry.延迟毫秒数
+     * 延迟写在名称里，修改延迟时声明新的队列，不会与已有队列的参数冲突
+     *
+     * @param queue 原队列
+     * @param delayMillis
+     * @return
+     */
+    public static String retryQueue(String queue, long delayMillis) {
+        return queue + ".retry." + delayMillis;
+    }
 }
@@ -0,0 +1,63 @@
+package com.lee.hotel.event;
+
+import com.lee.hotel.pojo.HotelDoc;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店文档写入或删除ES之后发布的Spring事件
+ * 用于通知本地缓存等组件同步更新
+ */
+@Getter
+public class HotelIndexedEvent {
+    /**
+     * 酒店id
+     */
+    private final Long id;
+
+    /**
+     * 新的酒店文档，删除时为null
+     */
+    private final HotelDoc hotelDoc;
+
+    /**
+     * 变化的字段（Hotel的属性名），为null时表示整行都可能变化
+     */
+    private final Set<String> changedFields;
+
+    public HotelIndexedEvent(Long id, HotelDoc hotelDoc) {
+        this(id, hotelDoc, null);
+    }
+
+    public HotelIndexedEvent(Long id, HotelDoc hotelDoc, Set<String> changedFields) {
+        this.id = id;
+        this.hotelDoc = hotelDoc;
+        this.changedFields = changedFields;
+    }
+
+    public boolean isDeleted() {
+        return hotelDoc == null;
+    }
+
+    /**
+     * 给定字段中是否有变化的，删除和整行写入时总是返回true
+     *
+     * @param fields Hotel的属性名
+     * @return
+     */
+    public boolean isChanged(String... fields) {
+        if (changedFields == null) {
+            return true;
+        }
+        for (String field : fields) {
+            if (changedFields.contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
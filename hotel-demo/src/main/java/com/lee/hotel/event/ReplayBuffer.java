@@ -0,0 +1,90 @@
+package com.lee.hotel.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 全量加载期间到达的变更先缓存，加载完成后按到达顺序重放：
+ * 1.加载前已经在缓存，加载读库之后、写入内存之前到达的变更不会被加载结果覆盖
+ * 2.重放时新到达的变更继续排在后面，缓存取空后才改为直接应用，顺序不变
+ * 3.加载失败时丢弃缓存，之后的变更直接应用
+ *
+ * @param <T> 一次变更
+ */
+public class ReplayBuffer<T> {
+
+    private final Consumer<T> apply;
+
+    /**
+     * 为null时不缓存，直接应用
+     */
+    private List<T> pending = new ArrayList<>();
+
+    /**
+     * 创建后即开始缓存，直到第一次加载完成
+     *
+     * @param apply 把一次变更应用到内存
+     */
+    public ReplayBuffer(Consumer<T> apply) {
+        this.apply = apply;
+    }
+
+    /**
+     * 收到一次变更，加载期间缓存，否则直接应用
+     *
+     * @param item
+     */
+    public void offer(T item) {
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(item);
+                return;
+            }
+        }
+        apply.accept(item);
+    }
+
+    /**
+     * 重新加载前调用，开始缓存
+     */
+    public synchronized void start() {
+        if (pending == null) {
+            pending = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 加载完成后调用，按到达顺序应用缓存的变更，取空后停止缓存
+     *
+     * @return 重放的变更数
+     */
+    public int replay() {
+        int replayed = 0;
+        while (true) {
+            List<T> batch;
+            synchronized (this) {
+                if (pending == null || pending.isEmpty()) {
+                    pending = null;
+                    return replayed;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            for (T item : batch) {
+                apply.accept(item);
+            }
+            replayed += batch.size();
+        }
+    }
+
+    /**
+     * 加载失败时调用，丢弃缓存并停止缓存
+     */
+    public synchronized void discard() {
+        pending = null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.lee.hotel.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 请求参数错误，返回400，不计入熔断
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends IllegalArgumentException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
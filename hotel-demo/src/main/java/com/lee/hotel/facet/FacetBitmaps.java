@@ -0,0 +1,219 @@
+package com.lee.hotel.facet;
+
+import com.lee.hotel.pojo.RequestParams;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 过滤项位图索引：每个品牌、城市、星级的值以及每个价格区间各对应一个酒店id位图
+ * 过滤项的取值由位图求交得到，结果与ES terms聚合（size 100，按文档数倒序）一致
+ * 非线程安全，由HotelFacetIndex加锁访问
+ */
+public class FacetBitmaps {
+
+    /**
+     * 参与聚合的字段，与buildAggregation保持一致
+     */
+    public static final String[] FACET_FIELDS = {"brand", "city", "starName"};
+
+    /**
+     * 每个字段最多返回的取值个数，对应terms聚合的size
+     */
+    private static final int FACET_SIZE = 100;
+
+    private final int priceBucketWidth;
+
+    private final RoaringBitmap all = new RoaringBitmap();
+
+    /**
+     * 字段 -> 取值 -> 酒店id位图
+     */
+    private final Map<String, Map<String, RoaringBitmap>> fields = new HashMap<>();
+
+    /**
+     * 价格区间编号 -> 酒店id位图
+     */
+    private final NavigableMap<Integer, RoaringBitmap> priceBuckets = new TreeMap<>();
+
+    /**
+     * 酒店id -> 当前写入的取值，更新和删除时撤销旧值
+     */
+    private final Map<Integer, FacetValues> docs = new HashMap<>();
+
+    public FacetBitmaps(int priceBucketWidth) {
+        this.priceBucketWidth = priceBucketWidth;
+        for (String field : FACET_FIELDS) {
+            fields.put(field, new HashMap<>());
+        }
+    }
+
+    /**
+     * 新增或覆盖一家酒店
+     *
+     * @param id
+     * @param values
+     */
+    public void put(int id, FacetValues values) {
+        remove(id);
+        docs.put(id, values);
+        all.add(id);
+        for (String field : FACET_FIELDS) {
+            String value = values.get(field);
+            if (value != null) {
+                fields.get(field).computeIfAbsent(value, v -> new RoaringBitmap()).add(id);
+            }
+        }
+        if (values.getPrice() != null) {
+            priceBuckets.computeIfAbsent(bucketOf(values.getPrice()), b -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    /**
+     * 删除一家酒店
+     *
+     * @param id
+     */
+    public void remove(int id) {
+        FacetValues old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        all.remove(id);
+        for (String field : FACET_FIELDS) {
+            String value = old.get(field);
+            if (value != null) {
+                removeFrom(fields.get(field), value, id);
+            }
+        }
+        if (old.getPrice() != null) {
+            removeFrom(priceBuckets, bucketOf(old.getPrice()), id);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> map, K key, int id) {
+        RoaringBitmap bitmap = map.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 计算过滤项：先按已选条件求交，再统计每个取值与结果集的交集大小
+     *
+     * @param params
+     * @return
+     */
+    public Map<String, List<String>> facets(RequestParams params) {
+        RoaringBitmap selected = select(params);
+
+        Map<String, List<String>> result = new HashMap<>();
+        for (String field : FACET_FIELDS) {
+            result.put(field, countValues(fields.get(field), selected));
+        }
+        return result;
+    }
+
+    private List<String> countValues(Map<String, RoaringBitmap> values, RoaringBitmap selected) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, RoaringBitmap> entry : values.entrySet()) {
+            int count = RoaringBitmap.andCardinality(entry.getValue(), selected);
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        // 与terms聚合的默认排序一致：文档数倒序，相同时按取值升序
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> keyList = new ArrayList<>(Math.min(entries.size(), FACET_SIZE));
+        for (int i = 0; i < entries.size() && i < FACET_SIZE; i++) {
+            keyList.add(entries.get(i).getKey());
+        }
+        return keyList;
+    }
+
+    /**
+     * 按城市、品牌、星级、价格条件求交，语义与buildBasicQuery中的filter一致
+     */
+    private RoaringBitmap select(RequestParams params) {
+        RoaringBitmap selected = all.clone();
+        selected = and(selected, "city", params.getCity());
+        selected = and(selected, "brand", params.getBrand());
+        selected = and(selected, "starName", params.getStarName());
+        if (params.getMinPrice() != null && params.getMaxPrice() != null) {
+            selected.and(priceRange(params.getMinPrice(), params.getMaxPrice()));
+        }
+        return selected;
+    }
+
+    private RoaringBitmap and(RoaringBitmap selected, String field, String value) {
+        if (!StringUtils.hasLength(value)) {
+            return selected;
+        }
+        RoaringBitmap bitmap = fields.get(field).get(value);
+        if (bitmap == null) {
+            return new RoaringBitmap();
+        }
+        selected.and(bitmap);
+        return selected;
+    }
+
+    /**
+     * 价格在[minPrice, maxPrice]之间的酒店
+     * 完全落在范围内的区间整体合并，两端的区间逐个比较价格
+     */
+    private RoaringBitmap priceRange(int minPrice, int maxPrice) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (minPrice > maxPrice) {
+            return result;
+        }
+        for (Map.Entry<Integer, RoaringBitmap> entry : priceBuckets.subMap(bucketOf(minPrice), true, bucketOf(maxPrice), true).entrySet()) {
+            long lower = (long) entry.getKey() * priceBucketWidth;
+            long upper = lower + priceBucketWidth - 1;
+            if (lower >= minPrice && upper <= maxPrice) {
+                result.or(entry.getValue());
+            } else {
+                entry.getValue().forEach((int id) -> {
+                    int price = docs.get(id).getPrice();
+                    if (price >= minPrice && price <= maxPrice) {
+                        result.add(id);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    private int bucketOf(int price) {
+        return Math.floorDiv(price, priceBucketWidth);
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    public void clear() {
+        all.clear();
+        docs.clear();
+        priceBuckets.clear();
+        for (Map<String, RoaringBitmap> values : fields.values()) {
+            values.clear();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.lee.hotel.facet;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一家酒店参与过滤项聚合的字段值
+ */
+@Data
+@AllArgsConstructor
+public class FacetValues {
+    private String brand;
+    private String city;
+    private String starName;
+    private Integer price;
+
+    public String get(String field) {
+        switch (field) {
+            case "brand":
+                return brand;
+            case "city":
+                return city;
+            case "starName":
+                return starName;
+            default:
+                throw new IllegalArgumentException("未知的过滤字段：" + field);
+        }
+    }
+}
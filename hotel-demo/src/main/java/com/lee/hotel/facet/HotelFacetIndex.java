@@ -0,0 +1,141 @@
+package com.lee.hotel.facet;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lee.hotel.config.HotelSearchProperties;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.event.ReplayBuffer;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.pojo.RequestParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 进程内的过滤项索引
+ * 启动时从tb_hotel加载，之后由每个实例各自的广播队列收到全部酒店变更增量更新
+ * 加载期间到达的变更先缓存，加载完成后按顺序重放，不会被加载时读到的旧数据覆盖
+ * 没有关键字时过滤项直接由位图计算，不再请求ES聚合
+ */
+@Slf4j
+@Component
+public class HotelFacetIndex {
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    private final HotelSearchProperties properties;
+
+    private final FacetBitmaps bitmaps;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ReplayBuffer<HotelIndexedEvent> buffer = new ReplayBuffer<>(this::apply);
+
+    private volatile boolean ready = false;
+
+    public HotelFacetIndex(HotelSearchProperties properties) {
+        this.properties = properties;
+        this.bitmaps = new FacetBitmaps(properties.getPriceBucketWidth());
+    }
+
+    /**
+     * 启动完成后全量加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        buffer.start();
+        try {
+            List<Hotel> hotels = hotelMapper.selectList(new QueryWrapper<Hotel>()
+                    .select("id", "brand", "city", "star_name", "price"));
+            lock.writeLock().lock();
+            try {
+                bitmaps.clear();
+                for (Hotel hotel : hotels) {
+                    bitmaps.put(toIntId(hotel.getId()),
+                            new FacetValues(hotel.getBrand(), hotel.getCity(), hotel.getStarName(), hotel.getPrice()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            int replayed = buffer.replay();
+            log.info("过滤项索引加载完成，酒店数：{}，重放变更数：{}", hotels.size(), replayed);
+        } catch (Exception e) {
+            // 加载失败时继续使用ES聚合
+            buffer.discard();
+            log.error("过滤项索引加载失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 收到酒店变更，加载期间先缓存
+     *
+     * @param event
+     */
+    public void onHotelChanged(HotelIndexedEvent event) {
+        buffer.offer(event);
+    }
+
+    private void apply(HotelIndexedEvent event) {
+        if (!event.isDeleted() && !event.isChanged("brand", "city", "starName", "price")) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int id = toIntId(event.getId());
+            if (event.isDeleted()) {
+                bitmaps.remove(id);
+            } else {
+                HotelDoc doc = event.getHotelDoc();
+                bitmaps.put(id, new FacetValues(doc.getBrand(), doc.getCity(), doc.getStarName(), doc.getPrice()));
+            }
+        } catch (ArithmeticException e) {
+            ready = false;
+            log.error("酒店id超出位图范围，过滤项索引停用：{}", event.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 是否可以用本地位图代替ES聚合：有关键字时结果集取决于全文检索，只能交给ES
+     *
+     * @param params
+     * @return
+     */
+    public boolean supports(RequestParams params) {
+        return properties.isLocalFacets() && ready && !StringUtils.hasLength(params.getKey());
+    }
+
+    /**
+     * 计算品牌、城市、星级的过滤项
+     *
+     * @param params
+     * @return
+     */
+    public Map<String, List<String>> facets(RequestParams params) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.facets(params);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int toIntId(Long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -13,10 +13,17 @@ import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
 import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
 import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.metrics.EsMetrics;
 import com.lee.hotel.pojo.HotelDoc;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -26,6 +33,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author LiJing
@@ -40,6 +48,12 @@ public class ElasticsearchHandle {
 
     @Autowired
     private ElasticsearchClient client;
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsMetrics esMetrics;
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
 
     /**
      * 判断索引是否存在
@@ -99,10 +113,10 @@ public class ElasticsearchHandle {
     public IndexResponse insertDocument(String indexName, Object obj, String id) {
         IndexResponse indexResponse;
         try {
-            indexResponse = client.index(i -> i
+            indexResponse = esMetrics.record("index", c -> c.index(i -> i
                     .index(indexName)
                     .id(id)
-                    .document(obj));
+                    .document(obj)));
         } catch (IOException e) {
             log.error("数据插入ES异常：{}", e.getMessage());
             throw new ExploException("ES新增数据失败");
@@ -120,11 +134,11 @@ public class ElasticsearchHandle {
     public GetResponse<HotelDoc> getDocument(String indexName, String id) {
         GetResponse<HotelDoc> getResponse;
         try {
-            getResponse = client.get(g -> g
+            getResponse = esMetrics.record("get", c -> c.get(g -> g
                             .index(indexName)
                             .id(id),
                     HotelDoc.class
-            );
+            ));
         } catch (IOException e) {
             log.error("查询ES异常：{}", e.getMessage());
             throw new ExploException("ES查询数据失败");
@@ -142,10 +156,10 @@ public class ElasticsearchHandle {
     public DeleteResponse deleteDocument(String indexName, String id) {
         DeleteResponse deleteResponse;
         try {
-            deleteResponse = client.delete(d -> d
+            deleteResponse = esMetrics.record("delete", c -> c.delete(d -> d
                     .index(indexName)
                     .id(id)
-            );
+            ));
         } catch (IOException e) {
             log.error("删除ES数据异常：{}", e.getMessage());
             throw new ExploException("ES删除数据失败");
@@ -177,6 +191,53 @@ public class ElasticsearchHandle {
         return updateResponse;
     }
 
+    /**
+     * 查询带广告标记的酒店id，广告标记迁移到数据库前只保存在ES中
+     *
+     * @param indexName
+     * @param size      最多返回条数
+     * @return
+     */
+    public List<Long> searchAdIds(String indexName, int size) {
+        SearchResponse<Void> response;
+        try {
+            response = client.search(s -> s
+                            .index(indexName)
+                            .query(q -> q.term(t -> t.field("isAD").value(true)))
+                            .source(src -> src.fetch(false))
+                            .size(size),
+                    Void.class
+            );
+        } catch (IOException e) {
+            log.error("查询广告酒店异常：{}", e.getMessage());
+            throw new ExploException("ES查询广告酒店失败");
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Hit<Void> hit : response.hits().hits()) {
+            ids.add(Long.valueOf(hit.id()));
+        }
+        return ids;
+    }
+
+    /**
+     * 发送已编码好的_bulk请求体（NDJSON），跳过客户端的对象序列化
+     *
+     * @param body
+     * @param length 有效字节数
+     * @return
+     * @throws IOException
+     */
+    public BulkResponse bulk(byte[] body, int length) throws IOException {
+        Request request = new Request("POST", "/_bulk");
+        request.setEntity(new ByteArrayEntity(body, 0, length, NDJSON));
+        Response response = restClient.performRequest(request);
+
+        JsonpMapper mapper = client._transport().jsonpMapper();
+        try (InputStream input = response.getEntity().getContent()) {
+            return BulkResponse._DESERIALIZER.deserialize(mapper.jsonProvider().createParser(input), mapper);
+        }
+    }
+
     /**
      * 查询所有 match_all
      *
@@ -373,6 +434,24 @@ public class ElasticsearchHandle {
      * @throws IOException
      */
     public List<String> suggest(String prefix) throws IOException {
+        SearchRequest request = buildSuggestRequest(prefix);
+        SearchResponse<HotelDoc> response = esMetrics.record("suggest", null,
+                c -> c.search(request, HotelDoc.class), c -> c.search(request, HotelDoc.class));
+        return handleSuggestResponse(response);
+    }
+
+    /**
+     * 自动补全，不阻塞调用线程
+     *
+     * @param prefix
+     * @return
+     */
+    public CompletableFuture<List<String>> suggestAsync(String prefix) {
+        return esMetrics.recordAsync("suggest", null, c -> c.search(buildSuggestRequest(prefix), HotelDoc.class))
+                .thenApply(this::handleSuggestResponse);
+    }
+
+    private SearchRequest buildSuggestRequest(String prefix) {
         SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder();
 
         searchRequestBuilder.suggest(builder -> builder
@@ -389,8 +468,10 @@ public class ElasticsearchHandle {
                 )
         );
 
-        SearchResponse<HotelDoc> response = client.search(searchRequestBuilder.build(), HotelDoc.class);
+        return searchRequestBuilder.build();
+    }
 
+    private List<String> handleSuggestResponse(SearchResponse<HotelDoc> response) {
         Map<String, List<Suggestion<HotelDoc>>> suggest = response.suggest();
         List<Suggestion<HotelDoc>> hotelSuggestion = suggest.get("hotelSuggestion");
         List<CompletionSuggestOption<HotelDoc>> options = hotelSuggestion.get(0).completion().options();
@@ -405,4 +486,3 @@ public class ElasticsearchHandle {
         return list;
     }
 }
-
@@ -0,0 +1,116 @@
+package com.lee.hotel.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 按数量或时间窗口攒批：
+ * 1.攒够batchSize条时由提交方的线程立即写入，写入期间提交方阻塞
+ * 2.否则从一批中第一条到达起计时，maxWait后不足一批也写入，持续的少量消息不会让一批无限等待
+ * 各批按攒满的先后顺序依次写入，不会并发
+ *
+ * @param <T> 一次变更，通常是消息和它的channel
+ */
+@Slf4j
+public class BatchWindow<T> {
+
+    private final int batchSize;
+
+    private final long maxWaitNanos;
+
+    private final Consumer<List<T>> writer;
+
+    private final ScheduledExecutorService timer;
+
+    /**
+     * 写入锁，保证各批依次写入
+     */
+    private final Object writeLock = new Object();
+
+    private List<T> buffer = new ArrayList<>();
+
+    /**
+     * 当前一批第一条到达的时间
+     */
+    private long startedAt;
+
+    /**
+     * @param name      计时线程名
+     * @param batchSize 一批最多包含的条数
+     * @param maxWait   一批从第一条到达起的最长等待时间
+     * @param writer    写入并确认一批变更
+     */
+    public BatchWindow(String name, int batchSize, Duration maxWait, Consumer<List<T>> writer) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.writer = writer;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 加入一条，攒够一批时在当前线程写入
+     *
+     * @param item
+     */
+    public void add(T item) {
+        boolean full;
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                startedAt = System.nanoTime();
+                timer.schedule(this::flushIfDue, maxWaitNanos, TimeUnit.NANOSECONDS);
+            }
+            buffer.add(item);
+            full = buffer.size() >= batchSize;
+        }
+        if (full) {
+            flush(false);
+        }
+    }
+
+    /**
+     * 写入缓冲中剩余的变更并停止计时
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        flush(false);
+    }
+
+    private void flushIfDue() {
+        try {
+            flush(true);
+        } catch (RuntimeException e) {
+            log.error("攒批写入失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * @param onlyIfDue 只有当前一批已经等待够maxWait时才写入；一批已被写入、新的一批由它自己的计时任务负责
+     */
+    private void flush(boolean onlyIfDue) {
+        synchronized (writeLock) {
+            List<T> batch;
+            synchronized (this) {
+                if (buffer.isEmpty() || onlyIfDue && System.nanoTime() - startedAt < maxWaitNanos) {
+                    return;
+                }
+                batch = buffer;
+                buffer = new ArrayList<>();
+            }
+            writer.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.lee.hotel.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一次批量写入的结果，记录每条失败的原因
+ */
+@Getter
+public class BulkIndexReport {
+
+    /**
+     * 合并前收到的变更数
+     */
+    private final int received;
+
+    /**
+     * 合并同一酒店的多次变更后实际写入的条数
+     */
+    private int sent;
+
+    private int succeeded;
+
+    /**
+     * ES中已有更新的版本，被拒绝的过时变更
+     */
+    private int stale;
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    public BulkIndexReport(int received) {
+        this.received = received;
+    }
+
+    void setSent(int sent) {
+        this.sent = sent;
+    }
+
+    void succeed() {
+        succeeded++;
+    }
+
+    void stale() {
+        stale++;
+    }
+
+    void fail(IndexOp op, int status, String reason) {
+        failures.add(new Failure(op, status, reason));
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "received=" + received + ", sent=" + sent + ", succeeded=" + succeeded + ", stale=" + stale + ", failed=" + failures.size();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        private IndexOp op;
+        /**
+         * ES返回的状态码
+         */
+        private int status;
+        private String reason;
+    }
+}
@@ -0,0 +1,317 @@
+package com.lee.hotel.index;
+
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+
+import java.util.Arrays;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 把Hotel直接编码成_bulk请求的NDJSON，不经过HotelDoc和Jackson
+ * 文档内容与JacksonJsonpMapper序列化HotelDoc的结果逐字节一致：字段顺序相同、null字段省略、
+ * 非ASCII字符原样输出UTF-8、控制字符和代理字符按Jackson的规则转义
+ * 缓冲区可重复使用，非线程安全，每个线程一个实例
+ */
+public class HotelBulkEncoder {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+    private byte[] buf;
+
+    private int size;
+
+    private int count;
+
+    public HotelBulkEncoder(int initialCapacity) {
+        this.buf = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    /**
+     * 清空内容，保留缓冲区
+     */
+    public void reset() {
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * 追加一条create操作，文档已存在时ES返回409
+     *
+     * @param index
+     * @param hotel
+     */
+    public void create(String index, Hotel hotel) {
+        action("create", index, hotel.getId());
+        document(hotel);
+    }
+
+    /**
+     * 追加一条index操作，文档已存在时覆盖
+     *
+     * @param index
+     * @param hotel
+     */
+    public void index(String index, Hotel hotel) {
+        action("index", index, hotel.getId());
+        document(hotel);
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 已追加的操作数
+     */
+    public int count() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    /**
+     * 与客户端BulkOperation的序列化一致：{"create":{"_id":"1","_index":"hotel"}}
+     */
+    private void action(String type, String index, Long id) {
+        writeAscii("{\"");
+        writeAscii(type);
+        writeAscii("\":{\"_id\":\"");
+        writeLong(id);
+        writeAscii("\",\"_index\":");
+        writeString(index);
+        writeAscii("}}\n");
+        count++;
+    }
+
+    /**
+     * 字段顺序与HotelDoc的声明顺序一致，distance为null不输出，isAD为null或false时adRank不输出
+     */
+    private void document(Hotel hotel) {
+        writeByte('{');
+        boolean first = true;
+        first = writeNumberField(first, "id", hotel.getId());
+        first = writeStringField(first, "name", hotel.getName());
+        first = writeStringField(first, "address", hotel.getAddress());
+        first = writeNumberField(first, "price", hotel.getPrice());
+        first = writeNumberField(first, "score", hotel.getScore());
+        first = writeStringField(first, "brand", hotel.getBrand());
+        first = writeStringField(first, "city", hotel.getCity());
+        first = writeStringField(first, "starName", hotel.getStarName());
+        first = writeStringField(first, "business", hotel.getBusiness());
+
+        // location：纬度 + ", " + 经度，与HotelDoc一样null会拼成字符串"null"
+        writeFieldName(first, "location");
+        writeByte('"');
+        writeEscaped(String.valueOf(hotel.getLatitude()));
+        writeAscii(", ");
+        writeEscaped(String.valueOf(hotel.getLongitude()));
+        writeByte('"');
+
+        writeStringField(false, "pic", hotel.getPic());
+
+        // 广告标记和由它生成的广告特征，与HotelDoc.setIsAD一致
+        Boolean isAD = hotel.getIsAD();
+        if (isAD != null) {
+            writeFieldName(false, "isAD");
+            writeAscii(isAD ? "true" : "false");
+            if (isAD) {
+                writeFieldName(false, HotelDoc.AD_RANK_FIELD);
+                writeAscii("1.0");
+            }
+        }
+
+        writeFieldName(false, "suggestion");
+        writeSuggestion(hotel.getBrand(), hotel.getBusiness());
+        writeAscii("}\n");
+    }
+
+    /**
+     * 等价于HotelDoc.buildSuggestion：品牌 + 按、或/切割后的商圈
+     */
+    private void writeSuggestion(String brand, String business) {
+        writeByte('[');
+        writeNullableString(brand);
+        char separator = business.indexOf('、') >= 0 ? '、' : business.indexOf('/') >= 0 ? '/' : 0;
+        if (separator == 0) {
+            writeByte(',');
+            writeString(business);
+        } else {
+            // String.split会去掉末尾的空串，保留中间和开头的空串
+            int end = business.length();
+            while (end > 0 && business.charAt(end - 1) == separator) {
+                end--;
+            }
+            int start = 0;
+            while (start < end) {
+                int next = business.indexOf(separator, start);
+                if (next < 0 || next > end) {
+                    next = end;
+                }
+                writeByte(',');
+                writeByte('"');
+                writeEscaped(business, start, next);
+                writeByte('"');
+                start = next + 1;
+            }
+        }
+        writeByte(']');
+    }
+
+    private boolean writeStringField(boolean first, String name, String value) {
+        if (value == null) {
+            return first;
+        }
+        writeFieldName(first, name);
+        writeString(value);
+        return false;
+    }
+
+    private boolean writeNumberField(boolean first, String name, Number value) {
+        if (value == null) {
+            return first;
+        }
+        writeFieldName(first, name);
+        writeLong(value.longValue());
+        return false;
+    }
+
+    private void writeFieldName(boolean first, String name) {
+        if (!first) {
+            writeByte(',');
+        }
+        writeByte('"');
+        writeAscii(name);
+        writeAscii("\":");
+    }
+
+    private void writeNullableString(String value) {
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) {
+        writeByte('"');
+        writeEscaped(value);
+        writeByte('"');
+    }
+
+    private void writeEscaped(String value) {
+        writeEscaped(value, 0, value.length());
+    }
+
+    /**
+     * UTF-8编码并转义，规则与Jackson默认的一致
+     */
+    private void writeEscaped(String value, int start, int end) {
+        // 最坏情况每个char占6个字节（\\u00XX）
+        ensureCapacity((end - start) * 6);
+        byte[] b = buf;
+        int pos = size;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[pos++] = (byte) c;
+                    continue;
+                }
+                b[pos++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        b[pos++] = (byte) c;
+                        break;
+                    case '\b':
+                        b[pos++] = 'b';
+                        break;
+                    case '\f':
+                        b[pos++] = 'f';
+                        break;
+                    case '\n':
+                        b[pos++] = 'n';
+                        break;
+                    case '\r':
+                        b[pos++] = 'r';
+                        break;
+                    case '\t':
+                        b[pos++] = 't';
+                        break;
+                    default:
+                        b[pos++] = 'u';
+                        b[pos++] = '0';
+                        b[pos++] = '0';
+                        b[pos++] = HEX[c >> 4];
+                        b[pos++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Jackson 2.13把代理字符逐个转义成六个字符的unicode转义，而不是合并成4字节的UTF-8
+                b[pos++] = '\\';
+                b[pos++] = 'u';
+                b[pos++] = HEX[c >> 12];
+                b[pos++] = HEX[(c >> 8) & 0xF];
+                b[pos++] = HEX[(c >> 4) & 0xF];
+                b[pos++] = HEX[c & 0xF];
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = pos;
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(20);
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buf[size++] = '-';
+            value = -value;
+        }
+        // 先算位数，再从低位往高位填
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = size + digits;
+        size = pos;
+        do {
+            buf[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+    }
+
+    private void writeAscii(String value) {
+        int len = value.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            buf[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buf[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, size + extra));
+        }
+    }
+}
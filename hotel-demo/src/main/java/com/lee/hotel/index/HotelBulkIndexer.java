@@ -0,0 +1,256 @@
+package com.lee.hotel.index;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.metrics.EsMetrics;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 批量索引器：把一批酒店变更合并后用一个BulkRequest写入ES
+ * 消息携带变更时间时，整个文档的写入和删除以它作为外部版本号（external_gte）：
+ * 新增和删除走不同的队列、失败的消息延迟重试，到达顺序无法保证，过时的变更由ES拒绝，不会覆盖新数据或让已删除的酒店复活
+ * 部分修改（_update）不支持外部版本号，只会把内部版本号加1，之后到达的较早的整个文档写入仍能通过external_gte检查并覆盖它，
+ * 所以带版本号的部分修改也按整个文档写入（消息携带修改后的整行），只有没有版本号的部分修改使用_update
+ */
+@Slf4j
+@Component
+public class HotelBulkIndexer {
+
+    private static final String INDEX_NAME = HotelReindexer.ALIAS;
+
+    @Autowired
+    private ElasticsearchClient client;
+    @Autowired
+    private HotelMapper hotelMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private HotelReindexer reindexer;
+    @Autowired
+    private EsMetrics esMetrics;
+
+    /**
+     * 批量写入
+     * 请求本身失败时抛出ExploException，由调用方决定是否重新投递整批消息；
+     * 单条失败记录在返回的报告中
+     *
+     * @param ops 按收到的先后顺序排列
+     * @return
+     */
+    public BulkIndexReport index(List<IndexOp> ops) {
+        BulkIndexReport report = new BulkIndexReport(ops.size());
+
+        // 1.同一家酒店只保留最后一次变更
+        Collection<IndexOp> coalesced = coalesce(ops);
+        report.setSent(coalesced.size());
+        if (coalesced.isEmpty()) {
+            return report;
+        }
+
+        // 2.准备文档，没有携带酒店数据的变更批量查库
+        List<IndexOp> sent = new ArrayList<>(coalesced.size());
+        List<HotelDoc> docs = new ArrayList<>(coalesced.size());
+        List<Map<String, Object>> partials = new ArrayList<>(coalesced.size());
+        Map<Long, Hotel> hotels = loadMissingHotels(coalesced);
+        for (IndexOp op : coalesced) {
+            HotelDoc hotelDoc = null;
+            Map<String, Object> partial = null;
+            if (op.getType() == IndexOp.Type.UPSERT) {
+                Hotel hotel = op.getHotel() != null ? op.getHotel() : hotels.get(op.getId());
+                if (hotel == null) {
+                    // 数据库里已经没有这家酒店，与数据库保持一致，删除文档
+                    op = IndexOp.delete(op.getId()).withVersion(op.getVersion());
+                } else {
+                    hotelDoc = new HotelDoc(hotel);
+                    // 没有版本号且只有部分字段变化时只发送这些字段，不认识的字段按整个文档写入；
+                    // 带版本号的保留变化的字段用于通知本地缓存，写入整个文档
+                    boolean unversionedPartial = op.isPartial() && op.getVersion() == 0;
+                    partial = unversionedPartial ? HotelPartialDoc.build(hotel, op.getChangedFields()) : null;
+                    if (unversionedPartial && partial == null) {
+                        op = IndexOp.upsert(hotel);
+                    }
+                }
+            }
+            sent.add(op);
+            docs.add(hotelDoc);
+            partials.add(partial);
+        }
+
+        // 3.发送，部分修改遇到文档不存在时改为写入整个文档
+        List<Integer> missing = send(sent, docs, partials, report);
+        if (!missing.isEmpty()) {
+            List<IndexOp> retryOps = new ArrayList<>(missing.size());
+            List<HotelDoc> retryDocs = new ArrayList<>(missing.size());
+            for (int i : missing) {
+                // 只有没有版本号的部分修改会走到这里
+                retryOps.add(IndexOp.upsert(sent.get(i).getHotel()));
+                retryDocs.add(docs.get(i));
+            }
+            send(retryOps, retryDocs, Collections.nCopies(retryOps.size(), null), report);
+        }
+
+        // 4.正在全量重建索引时，变更同时写入新索引，避免切换别名后丢失
+        String buildingIndex = reindexer.getBuildingIndex();
+        if (buildingIndex != null) {
+            mirror(buildingIndex, sent, docs);
+        }
+        return report;
+    }
+
+    /**
+     * 发送一个BulkRequest，成功的通知本地缓存
+     *
+     * @return 部分修改时文档不存在的下标
+     */
+    private List<Integer> send(List<IndexOp> ops, List<HotelDoc> docs, List<Map<String, Object>> partials,
+                               BulkIndexReport report) {
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (int i = 0; i < ops.size(); i++) {
+            Map<String, Object> partial = partials.get(i);
+            if (partial != null) {
+                addUpdate(br, INDEX_NAME, ops.get(i), partial);
+            } else {
+                addOperation(br, INDEX_NAME, ops.get(i), docs.get(i));
+            }
+        }
+        BulkResponse response;
+        try {
+            response = esMetrics.record("bulk", c -> c.bulk(br.build()));
+        } catch (IOException e) {
+            log.error("批量写入ES异常：{}", e.getMessage());
+            throw new ExploException("ES批量写入失败");
+        }
+
+        // 逐条检查结果
+        List<Integer> missing = new ArrayList<>();
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            IndexOp op = ops.get(i);
+            if (item.error() == null) {
+                report.succeed();
+                eventPublisher.publishEvent(new HotelIndexedEvent(op.getId(), docs.get(i), op.getChangedFields()));
+            } else if (item.status() == 404 && partials.get(i) != null) {
+                missing.add(i);
+            } else if (item.status() == 409 && op.getVersion() > 0) {
+                // ES中已有更新的版本，丢弃过时的变更
+                report.stale();
+                log.debug("酒店{}的变更已过时，跳过：version={}", op.getId(), op.getVersion());
+            } else {
+                report.fail(op, item.status(), item.error().reason());
+            }
+        }
+        return missing;
+    }
+
+    private void mirror(String indexName, List<IndexOp> ops, List<HotelDoc> docs) {
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (int i = 0; i < ops.size(); i++) {
+            addOperation(br, indexName, ops.get(i), docs.get(i));
+            reindexer.mirrored(ops.get(i));
+        }
+        try {
+            BulkResponse response = client.bulk(br.build());
+            if (response.errors()) {
+                for (BulkResponseItem item : response.items()) {
+                    if (item.error() != null) {
+                        log.error("酒店{}同步写入{}失败：{}", item.id(), indexName, item.error().reason());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("同步写入{}异常：{}", indexName, e.getMessage());
+        }
+    }
+
+    private Collection<IndexOp> coalesce(List<IndexOp> ops) {
+        Map<Long, IndexOp> latest = new LinkedHashMap<>();
+        for (IndexOp op : ops) {
+            // 先删除再放入，保证按最后一次变更的顺序写入
+            IndexOp previous = latest.remove(op.getId());
+            latest.put(op.getId(), previous == null ? op : IndexOp.merge(previous, op));
+        }
+        return latest.values();
+    }
+
+    private Map<Long, Hotel> loadMissingHotels(Collection<IndexOp> ops) {
+        List<Long> ids = new ArrayList<>();
+        for (IndexOp op : ops) {
+            if (op.getType() == IndexOp.Type.UPSERT && op.getHotel() == null) {
+                ids.add(op.getId());
+            }
+        }
+        Map<Long, Hotel> hotels = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Hotel hotel : hotelMapper.selectBatchIds(ids)) {
+                hotels.put(hotel.getId(), hotel);
+            }
+        }
+        return hotels;
+    }
+
+    /**
+     * 部分修改：ES合并到原文档，合并后与原文档相同时不重新索引
+     */
+    private void addUpdate(BulkRequest.Builder br, String indexName, IndexOp op, Map<String, Object> partial) {
+        String id = op.getId().toString();
+        br.operations(o -> o
+                .update(u -> u
+                        .index(indexName)
+                        .id(id)
+                        .action(a -> a
+                                .doc(partial)
+                                .detectNoop(true)
+                        )
+                )
+        );
+    }
+
+    private void addOperation(BulkRequest.Builder br, String indexName, IndexOp op, HotelDoc hotelDoc) {
+        String id = op.getId().toString();
+        if (op.getType() == IndexOp.Type.DELETE) {
+            br.operations(o -> o
+                    .delete(d -> {
+                        d.index(indexName).id(id);
+                        if (op.getVersion() > 0) {
+                            d.version(op.getVersion()).versionType(VersionType.ExternalGte);
+                        }
+                        return d;
+                    })
+            );
+        } else {
+            br.operations(o -> o
+                    .index(idx -> {
+                        idx.index(indexName).id(id).document(hotelDoc);
+                        if (op.getVersion() > 0) {
+                            idx.version(op.getVersion()).versionType(VersionType.ExternalGte);
+                        }
+                        return idx;
+                    })
+            );
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.lee.hotel.index;
+
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 由变化的字段生成部分文档，用于_update请求
+ * 只有品牌或商圈变化时才重新生成自动补全字段，只有经纬度变化时才重新拼接坐标
+ */
+public class HotelPartialDoc {
+
+    private HotelPartialDoc() {
+    }
+
+    /**
+     * @param hotel         修改后的整行数据
+     * @param changedFields 变化的字段（Hotel的属性名）
+     * @return 有不认识的字段时返回null，由调用方写入整个文档
+     */
+    public static Map<String, Object> build(Hotel hotel, Set<String> changedFields) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        for (String field : changedFields) {
+            switch (field) {
+                case "name":
+                    doc.put("name", hotel.getName());
+                    break;
+                case "address":
+                    doc.put("address", hotel.getAddress());
+                    break;
+                case "price":
+                    doc.put("price", hotel.getPrice());
+                    break;
+                case "score":
+                    doc.put("score", hotel.getScore());
+                    break;
+                case "brand":
+                    doc.put("brand", hotel.getBrand());
+                    break;
+                case "city":
+                    doc.put("city", hotel.getCity());
+                    break;
+                case "starName":
+                    doc.put("starName", hotel.getStarName());
+                    break;
+                case "business":
+                    doc.put("business", hotel.getBusiness());
+                    break;
+                case "pic":
+                    doc.put("pic", hotel.getPic());
+                    break;
+                case "longitude":
+                case "latitude":
+                    doc.put("location", hotel.getLatitude() + ", " + hotel.getLongitude());
+                    break;
+                default:
+                    return null;
+            }
+        }
+        if (changedFields.contains("brand") || changedFields.contains("business")) {
+            doc.put("suggestion", HotelDoc.buildSuggestion(hotel.getBrand(), hotel.getBusiness()));
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,353 @@
+package com.lee.hotel.index;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.lee.hotel.config.IndexProperties;
+import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.handle.ElasticsearchHandle;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 全量重建索引，不停机：
+ * 1.按hotel-index.json新建带版本号的索引，关闭刷新和副本
+ * 2.把tb_hotel按id切分成多段，多个线程各自按id分页读取并批量写入，内存占用与表大小无关
+ *   广告标记保存在tb_hotel.is_ad中，isAD和adRank随整行写入新索引，切换别名后不会丢失
+ * 3.补删导入期间被删除的文档，恢复刷新和副本，原子地把别名hotel切换到新索引
+ * 任何一步失败都删除新索引，不留下半成品
+ */
+@Slf4j
+@Component
+public class HotelReindexer {
+
+    /**
+     * 业务读写使用的别名
+     */
+    public static final String ALIAS = "hotel";
+
+    /**
+     * 导入广告标记时最多查询的条数，不超过index.max_result_window
+     */
+    private static final int AD_IMPORT_LIMIT = 10000;
+
+    private static final int AD_IMPORT_BATCH = 1000;
+
+    @Autowired
+    private ElasticsearchClient client;
+    @Autowired
+    private ElasticsearchHandle handle;
+    @Autowired
+    private HotelMapper hotelMapper;
+    @Autowired
+    private IndexProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 正在导入的新索引，导入期间MQ同步的变更也要写一份进去
+     */
+    private volatile String buildingIndex;
+
+    /**
+     * 导入期间MQ同步删除的酒店id
+     * 同步的删除可能先于导入线程的create到达，create会让已删除的酒店复活，切换别名前要再删一次
+     */
+    private final Set<Long> deletedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 执行全量重建，同一时间只允许一个任务
+     *
+     * @return
+     */
+    public ReindexReport reindex() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有重建索引任务在执行");
+        }
+        try {
+            return doReindex();
+        } catch (IOException e) {
+            log.error("重建索引异常：{}", e.getMessage());
+            throw new ExploException("ES重建索引失败");
+        } finally {
+            buildingIndex = null;
+            deletedIds.clear();
+            running.set(false);
+        }
+    }
+
+    public String getBuildingIndex() {
+        return buildingIndex;
+    }
+
+    /**
+     * 记录同步写入新索引的变更，删除的id在切换别名前补删，之后又写入的不再补删
+     */
+    public void mirrored(IndexOp op) {
+        if (op.getType() == IndexOp.Type.DELETE) {
+            deletedIds.add(op.getId());
+        } else {
+            deletedIds.remove(op.getId());
+        }
+    }
+
+    /**
+     * 迁移用：把只保存在ES中的广告标记写入tb_hotel.is_ad，之后重建索引时广告标记和adRank随整行写入
+     * 写入的值与ES中一致，不需要再发变更消息
+     *
+     * @return 标记为广告的酒店数
+     */
+    public int importAdFlags() {
+        List<Long> ids = handle.searchAdIds(ALIAS, AD_IMPORT_LIMIT);
+        int updated = 0;
+        for (int i = 0; i < ids.size(); i += AD_IMPORT_BATCH) {
+            List<Long> batch = ids.subList(i, Math.min(ids.size(), i + AD_IMPORT_BATCH));
+            updated += hotelMapper.update(null, new UpdateWrapper<Hotel>().set("is_ad", true).in("id", batch));
+        }
+        log.info("导入广告标记：ES中{}家，数据库更新{}行", ids.size(), updated);
+        return updated;
+    }
+
+    private ReindexReport doReindex() throws IOException {
+        long start = System.currentTimeMillis();
+        String newIndex = ALIAS + "_" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+        ReindexReport report = new ReindexReport(newIndex);
+
+        // 1.新建索引，导入期间不刷新、不复制
+        handle.createIndex(newIndex, "hotel-index.json");
+        try {
+            client.indices().putSettings(p -> p
+                    .index(newIndex)
+                    .settings(s -> s
+                            .numberOfReplicas("0")
+                            .refreshInterval(t -> t.time("-1"))
+                    )
+            );
+        } catch (IOException | RuntimeException e) {
+            dropIndex(newIndex);
+            throw e;
+        }
+        buildingIndex = newIndex;
+        log.info("开始重建索引：{}", newIndex);
+
+        try {
+            // 2.并行导入
+            load(newIndex, report);
+
+            // 3.补删导入期间被删除的文档
+            redelete(newIndex, report);
+
+            // 4.恢复刷新和副本
+            IndexProperties.Reindex reindex = properties.getReindex();
+            client.indices().putSettings(p -> p
+                    .index(newIndex)
+                    .settings(s -> s
+                            .numberOfReplicas(reindex.getReplicas())
+                            .refreshInterval(t -> t.time(reindex.getRefreshInterval()))
+                    )
+            );
+            client.indices().refresh(r -> r.index(newIndex));
+        } catch (IOException | RuntimeException e) {
+            dropIndex(newIndex);
+            throw e;
+        }
+
+        // 5.有失败时删除新索引，不切换别名
+        if (report.getFailed().get() > 0) {
+            log.error("重建索引有{}条写入失败，别名未切换：{}", report.getFailed().get(), newIndex);
+            dropIndex(newIndex);
+        } else {
+            swapAlias(newIndex, report);
+        }
+
+        report.setTookMillis(System.currentTimeMillis() - start);
+        log.info("重建索引结束：{}", report);
+        return report;
+    }
+
+    private void load(String newIndex, ReindexReport report) {
+        Map<String, Object> range = hotelMapper.selectIdRange();
+        if (range == null || range.get("minId") == null) {
+            return;
+        }
+        long minId = ((Number) range.get("minId")).longValue();
+        long maxId = ((Number) range.get("maxId")).longValue();
+        int workers = Math.max(1, properties.getReindex().getWorkers());
+        long step = (maxId - minId) / workers + 1;
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                // 每段为 (afterId, upperId]
+                long afterId = minId - 1 + i * step;
+                long upperId = Math.min(maxId, afterId + step);
+                if (afterId >= maxId) {
+                    break;
+                }
+                futures.add(pool.submit(() -> loadRange(newIndex, afterId, upperId, report)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExploException("重建索引被中断");
+        } catch (ExecutionException e) {
+            log.error("重建索引异常：{}", e.getCause().getMessage());
+            throw new ExploException("ES重建索引失败");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 按id分页读取一段数据，每页一个BulkRequest
+     */
+    private void loadRange(String newIndex, long afterId, long upperId, ReindexReport report) {
+        IndexProperties.Reindex reindex = properties.getReindex();
+        int pageSize = reindex.getPageSize();
+        // 每个线程一个编码器，缓冲区在各页之间复用
+        HotelBulkEncoder encoder = new HotelBulkEncoder(pageSize * 1024);
+        long lastId = afterId;
+        while (true) {
+            List<Hotel> hotels = hotelMapper.selectPageAfter(lastId, upperId, pageSize);
+            if (hotels.isEmpty()) {
+                return;
+            }
+
+            BulkResponse response;
+            try {
+                response = reindex.isDirectEncode() ? bulkEncoded(encoder, newIndex, hotels) : bulk(newIndex, hotels);
+            } catch (IOException e) {
+                throw new ExploException("ES批量写入失败：" + e.getMessage());
+            }
+            countItems(response, report);
+
+            lastId = hotels.get(hotels.size() - 1).getId();
+            if (hotels.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+    private BulkResponse bulk(String newIndex, List<Hotel> hotels) throws IOException {
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (Hotel hotel : hotels) {
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            // create：MQ在导入期间已经写入的新版本不会被旧数据覆盖
+            br.operations(op -> op
+                    .create(c -> c
+                            .index(newIndex)
+                            .id(hotelDoc.getId().toString())
+                            .document(hotelDoc)
+                    )
+            );
+        }
+        return client.bulk(br.build());
+    }
+
+    /**
+     * 直接把Hotel编码成NDJSON，不创建HotelDoc，不经过Jackson
+     */
+    private BulkResponse bulkEncoded(HotelBulkEncoder encoder, String newIndex, List<Hotel> hotels) throws IOException {
+        encoder.reset();
+        for (Hotel hotel : hotels) {
+            encoder.create(newIndex, hotel);
+        }
+        return handle.bulk(encoder.buffer(), encoder.size());
+    }
+
+    private void countItems(BulkResponse response, ReindexReport report) {
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() == null) {
+                report.getIndexed().incrementAndGet();
+            } else if (item.status() == 409) {
+                report.getConflicts().incrementAndGet();
+            } else {
+                report.getFailed().incrementAndGet();
+                log.error("酒店{}写入{}失败：{}", item.id(), item.index(), item.error().reason());
+            }
+        }
+    }
+
+    /**
+     * 导入已经结束，再删一次导入期间同步删除的文档，之后到达的删除直接同步写入新索引
+     */
+    private void redelete(String newIndex, ReindexReport report) throws IOException {
+        if (deletedIds.isEmpty()) {
+            return;
+        }
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (Long id : deletedIds) {
+            br.operations(op -> op.delete(d -> d.index(newIndex).id(id.toString())));
+        }
+        for (BulkResponseItem item : client.bulk(br.build()).items()) {
+            // 404说明create没有赶在删除之后到达，不需要处理
+            if (item.error() == null && item.status() == 200) {
+                report.getRedeleted().incrementAndGet();
+            } else if (item.error() != null && item.status() != 404) {
+                report.getFailed().incrementAndGet();
+                log.error("酒店{}补删{}失败：{}", item.id(), item.index(), item.error().reason());
+            }
+        }
+        log.info("补删导入期间删除的酒店：{}条，实际删除{}条", deletedIds.size(), report.getRedeleted().get());
+    }
+
+    private void dropIndex(String newIndex) {
+        try {
+            handle.deleteIndex(newIndex);
+            log.info("已删除未完成的索引：{}", newIndex);
+        } catch (IOException | RuntimeException e) {
+            log.error("删除未完成的索引{}失败：{}", newIndex, e.getMessage());
+        }
+    }
+
+    /**
+     * 原子地切换别名
+     * 旧版本hotel是实体索引而不是别名时，同一个请求里删除该索引再添加别名
+     */
+    private void swapAlias(String newIndex, ReindexReport report) throws IOException {
+        UpdateAliasesRequest.Builder builder = new UpdateAliasesRequest.Builder();
+        if (handle.hasIndex(ALIAS)) {
+            for (String oldIndex : client.indices().get(g -> g.index(ALIAS)).result().keySet()) {
+                report.getOldIndices().add(oldIndex);
+                if (ALIAS.equals(oldIndex)) {
+                    log.warn("{}是实体索引，切换别名时将被删除", ALIAS);
+                    builder.actions(a -> a.removeIndex(r -> r.index(oldIndex)));
+                } else {
+                    builder.actions(a -> a.remove(r -> r.index(oldIndex).alias(ALIAS)));
+                }
+            }
+        }
+        builder.actions(a -> a.add(r -> r.index(newIndex).alias(ALIAS)));
+
+        client.indices().updateAliases(builder.build());
+        report.setSwapped(true);
+        log.info("别名{}已切换：{} -> {}", ALIAS, report.getOldIndices(), newIndex);
+    }
+}
@@ -0,0 +1,146 @@
+package com.lee.hotel.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 按酒店id分道的并行写入：
+ * 1.同一家酒店的变更总是进入同一条道，道内先进先出，保证同一家酒店的变更按顺序写入
+ * 2.每条道一个有界队列和一个线程，队列满时提交方阻塞，由MQ的预取数兜住未确认的消息
+ * 3.道内攒批交给writer写入并确认；writer抛出异常时原地重试，不打乱后续变更的顺序
+ *
+ * @param <T> 一次变更，通常是消息和解析出的IndexOp
+ */
+@Slf4j
+public class IndexLanes<T> {
+
+    private final List<Lane> lanes;
+
+    private final int batchSize;
+
+    private final long retryBackoffMillis;
+
+    private final Consumer<List<T>> writer;
+
+    /**
+     * @param name         线程名前缀
+     * @param laneCount    道数
+     * @param capacity     每条道的队列容量
+     * @param batchSize    每次写入的最大条数
+     * @param retryBackoff writer抛出异常后重试的间隔
+     * @param writer       写入并确认一批变更
+     */
+    public IndexLanes(String name, int laneCount, int capacity, int batchSize, Duration retryBackoff,
+                      Consumer<List<T>> writer) {
+        this.lanes = new ArrayList<>(Math.max(1, laneCount));
+        this.batchSize = Math.max(1, batchSize);
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.writer = writer;
+        for (int i = 0; i < Math.max(1, laneCount); i++) {
+            Lane lane = new Lane(name + "-" + i, capacity);
+            lanes.add(lane);
+            lane.start();
+        }
+    }
+
+    /**
+     * 提交一次变更，所在道的队列已满时阻塞
+     *
+     * @param id   酒店id，决定进入哪条道
+     * @param item
+     * @throws InterruptedException
+     */
+    public void submit(long id, T item) throws InterruptedException {
+        lanes.get(lane(id, lanes.size())).queue.put(item);
+    }
+
+    public int size() {
+        return lanes.size();
+    }
+
+    /**
+     * 某条道排队中的变更数
+     *
+     * @param lane
+     * @return
+     */
+    public int depth(int lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    /**
+     * 停止所有道，队列中未写入的变更不会确认，由MQ重新投递
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+    }
+
+    /**
+     * Jump一致性哈希：道数从n变为n+1时只有约1/(n+1)的酒店换道
+     *
+     * @param key
+     * @param buckets
+     * @return [0, buckets)
+     */
+    public static int lane(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    private final class Lane extends Thread {
+
+        private final BlockingQueue<T> queue;
+
+        private Lane(String name, int capacity) {
+            super(name);
+            setDaemon(true);
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        @Override
+        public void run() {
+            List<T> batch = new ArrayList<>(batchSize);
+            try {
+                while (!isInterrupted()) {
+                    // 阻塞等待第一条，再把已经排队的取出来凑成一批
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                log.info("{}已停止，{}条变更未确认", getName(), batch.size() + queue.size());
+            }
+        }
+
+        private void write(List<T> batch) throws InterruptedException {
+            while (true) {
+                try {
+                    writer.accept(batch);
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("{}写入{}条变更失败，{}ms后重试：{}", getName(), batch.size(), retryBackoffMillis, e.getMessage());
+                    TimeUnit.MILLISECONDS.sleep(retryBackoffMillis);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.lee.hotel.index;
+
+import com.lee.hotel.pojo.Hotel;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一次待写入ES的酒店变更
+ */
+@Getter
+public class IndexOp {
+
+    public enum Type {
+        /**
+         * 新增或修改
+         */
+        UPSERT,
+        /**
+         * 删除
+         */
+        DELETE
+    }
+
+    private final Long id;
+
+    private final Type type;
+
+    /**
+     * 变更后的酒店数据，为null时由索引器从数据库读取
+     */
+    private final Hotel hotel;
+
+    /**
+     * 修改时变化的字段（Hotel的属性名），为null时写入整个文档
+     */
+    private final Set<String> changedFields;
+
+    /**
+     * 变更时间（毫秒），作为ES的外部版本号，过时的写入和删除被ES拒绝；为0时不做版本检查
+     */
+    private final long version;
+
+    private IndexOp(Long id, Type type, Hotel hotel, Set<String> changedFields, long version) {
+        this.id = id;
+        this.type = type;
+        this.hotel = hotel;
+        this.changedFields = changedFields;
+        this.version = version;
+    }
+
+    public static IndexOp upsert(Long id) {
+        return new IndexOp(id, Type.UPSERT, null, null, 0);
+    }
+
+    public static IndexOp upsert(Hotel hotel) {
+        return new IndexOp(hotel.getId(), Type.UPSERT, hotel, null, 0);
+    }
+
+    /**
+     * 只有部分字段变化的修改，只写入这些字段对应的文档字段
+     *
+     * @param hotel         修改后的整行数据
+     * @param changedFields 变化的字段，为空时写入整个文档
+     * @return
+     */
+    public static IndexOp update(Hotel hotel, Collection<String> changedFields) {
+        if (changedFields == null || changedFields.isEmpty()) {
+            return upsert(hotel);
+        }
+        return new IndexOp(hotel.getId(), Type.UPSERT, hotel,
+                Collections.unmodifiableSet(new LinkedHashSet<>(changedFields)), 0);
+    }
+
+    public static IndexOp delete(Long id) {
+        return new IndexOp(id, Type.DELETE, null, null, 0);
+    }
+
+    /**
+     * 带上版本号的同一变更
+     *
+     * @param version 变更时间（毫秒），为0时不做版本检查
+     * @return
+     */
+    public IndexOp withVersion(long version) {
+        return new IndexOp(id, type, hotel, changedFields, version);
+    }
+
+    /**
+     * 是否只写入变化的字段
+     *
+     * @return
+     */
+    public boolean isPartial() {
+        return changedFields != null;
+    }
+
+    /**
+     * 同一批里同一家酒店的两次变更合并成一次：
+     * 两次都是部分修改时合并变化的字段，否则以后一次为准写入整个文档，版本号取后一次的
+     *
+     * @param previous 先到的变更
+     * @param next     后到的变更
+     * @return
+     */
+    public static IndexOp merge(IndexOp previous, IndexOp next) {
+        if (!next.isPartial()) {
+            return next;
+        }
+        if (previous.isPartial()) {
+            Set<String> fields = new LinkedHashSet<>(previous.getChangedFields());
+            fields.addAll(next.getChangedFields());
+            return update(next.getHotel(), fields).withVersion(next.getVersion());
+        }
+        // 之前是删除或整行写入，文档可能不存在，部分修改改为整行写入
+        return upsert(next.getHotel()).withVersion(next.getVersion());
+    }
+
+    @Override
+    public String toString() {
+        return isPartial() ? type + "(" + id + ")" + changedFields : type + "(" + id + ")";
+    }
+}
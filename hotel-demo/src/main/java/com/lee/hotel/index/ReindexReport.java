@@ -0,0 +1,44 @@
+package com.lee.hotel.index;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 全量重建索引的结果
+ */
+@Data
+public class ReindexReport {
+    /**
+     * 新建的索引
+     */
+    private String newIndex;
+    /**
+     * 切换前别名指向的索引
+     */
+    private List<String> oldIndices = new ArrayList<>();
+    /**
+     * 别名是否已切换到新索引
+     */
+    private boolean swapped;
+    private final AtomicLong indexed = new AtomicLong();
+    /**
+     * 导入期间MQ已经写入了更新的版本，跳过的条数
+     */
+    private final AtomicLong conflicts = new AtomicLong();
+    /**
+     * 导入期间被删除、又被create写回，切换别名前补删的条数
+     */
+    private final AtomicLong redeleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long tookMillis;
+
+    public ReindexReport(String newIndex) {
+        this.newIndex = newIndex;
+    }
+}
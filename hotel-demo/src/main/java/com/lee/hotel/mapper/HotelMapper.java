@@ -2,6 +2,30 @@ package com.lee.hotel.mapper;
 
 import com.lee.hotel.pojo.Hotel;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
 
 public interface HotelMapper extends BaseMapper<Hotel> {
+
+    /**
+     * 查询id的范围，用于把全表切分给多个线程
+     *
+     * @return minId、maxId
+     */
+    @Select("select min(id) as minId, max(id) as maxId from tb_hotel")
+    Map<String, Object> selectIdRange();
+
+    /**
+     * 按id分页（keyset），查询 (afterId, maxId] 范围内的下一页
+     *
+     * @param afterId 上一页最后一条的id，不包含
+     * @param maxId   范围上限，包含
+     * @param limit   每页条数
+     * @return
+     */
+    @Select("select * from tb_hotel where id > #{afterId} and id <= #{maxId} order by id limit #{limit}")
+    List<Hotel> selectPageAfter(@Param("afterId") long afterId, @Param("maxId") long maxId, @Param("limit") int limit);
 }
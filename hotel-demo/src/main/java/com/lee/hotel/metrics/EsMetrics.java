@@ -0,0 +1,244 @@
+package com.lee.hotel.metrics;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchTemplateResponse;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import com.lee.hotel.budget.LatencyBudget;
+import com.lee.hotel.pojo.RequestParams;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.RequestOptions;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * ES调用的监控指标，每个操作（search、filters、suggest、index、delete、get、bulk）分别记录：
+ * hotel.es.latency       客户端观察到的耗时，含网络和反序列化
+ * hotel.es.took          ES返回的took
+ * hotel.es.deserialize   响应接收完成到解析出结果对象的耗时
+ * hotel.es.response.size 响应体字节数（压缩时为压缩后的大小）
+ * 搜索类操作带location、keyword标签，区分按距离排序和关键字查询
+ * 配置了延迟预算的操作，从发出请求到返回结果的全程不超过截止时间，超时记为error：
+ * 同步客户端的超时只能分别限制取连接、建立连接和两次读之间的间隔，加起来可能是截止时间的数倍，
+ * 所以同步调用也经异步客户端发送，由LatencyBudget.within在截止时间到达时失败并取消请求
+ */
+@Component
+public class EsMetrics {
+
+    /**
+     * 与RestClient默认的响应缓冲上限一致
+     */
+    private static final int BUFFER_LIMIT = 100 * 1024 * 1024;
+
+    private final MeterRegistry registry;
+
+    private final ElasticsearchClient client;
+
+    private final ElasticsearchAsyncClient asyncClient;
+
+    private final LatencyBudget budget;
+
+    public EsMetrics(MeterRegistry registry, ElasticsearchClient client, ElasticsearchAsyncClient asyncClient, LatencyBudget budget) {
+        this.registry = registry;
+        this.client = client;
+        this.asyncClient = asyncClient;
+        this.budget = budget;
+    }
+
+    @FunctionalInterface
+    public interface EsCall<T> {
+        T call(ElasticsearchClient client) throws IOException;
+    }
+
+    /**
+     * 记录一次搜索类调用
+     */
+    public <T> T record(String op, RequestParams params, EsCall<T> call) throws IOException {
+        return record(op, tags(params), call);
+    }
+
+    /**
+     * 记录一次搜索类调用，配置了截止时间时经异步客户端发送，调用线程最多等待到截止时间
+     *
+     * @param call      同步调用，没有截止时间时使用
+     * @param asyncCall 同一个调用的异步版本
+     */
+    public <T> T record(String op, RequestParams params, EsCall<T> call,
+                        Function<ElasticsearchAsyncClient, CompletableFuture<T>> asyncCall) throws IOException {
+        if (budget.deadline(op) == null) {
+            return record(op, params, call);
+        }
+        try {
+            return recordAsync(op, params, asyncCall).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待ES " + op + "被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            // 超时等受检异常保留在cause中，熔断器按cause判断是否计为失败
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * 记录一次非搜索类调用
+     */
+    public <T> T record(String op, EsCall<T> call) throws IOException {
+        return record(op, tags(null), call);
+    }
+
+    public <T> CompletableFuture<T> recordAsync(String op, RequestParams params,
+                                                Function<ElasticsearchAsyncClient, CompletableFuture<T>> call) {
+        Tags tags = tags(params).and("op", op);
+        Probe probe = new Probe();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(asyncClient.withTransportOptions(probe.options(budget.deadline(op))));
+        } catch (RuntimeException e) {
+            recordLatency(tags, start, "error");
+            throw e;
+        }
+        return budget.within(op, future).whenComplete((result, e) -> {
+            recordLatency(tags, start, e == null ? "success" : "error");
+            if (e == null) {
+                recordResponse(tags, probe, result);
+            }
+        });
+    }
+
+    private <T> T record(String op, Tags baseTags, EsCall<T> call) throws IOException {
+        Tags tags = baseTags.and("op", op);
+        Probe probe = new Probe();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call(client.withTransportOptions(probe.options(budget.deadline(op))));
+        } catch (IOException | RuntimeException e) {
+            recordLatency(tags, start, "error");
+            throw e;
+        }
+        recordLatency(tags, start, "success");
+        recordResponse(tags, probe, result);
+        return result;
+    }
+
+    private Tags tags(RequestParams params) {
+        boolean location = params != null && StringUtils.hasLength(params.getLocation());
+        boolean keyword = params != null && StringUtils.hasLength(params.getKey());
+        return Tags.of("location", String.valueOf(location), "keyword", String.valueOf(keyword));
+    }
+
+    private void recordLatency(Tags tags, long start, String outcome) {
+        timer("hotel.es.latency", "客户端观察到的ES调用耗时", tags.and("outcome", outcome))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordResponse(Tags tags, Probe probe, Object result) {
+        long end = System.nanoTime();
+        if (probe.receivedAt > 0) {
+            timer("hotel.es.deserialize", "ES响应的反序列化耗时", tags)
+                    .record(end - probe.receivedAt, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("hotel.es.response.size")
+                    .description("ES响应体字节数")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(probe.bytes);
+        }
+        long took = took(result);
+        if (took >= 0) {
+            timer("hotel.es.took", "ES返回的took", tags).record(took, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    private static long took(Object result) {
+        if (result instanceof SearchResponse) {
+            return ((SearchResponse<?>) result).took();
+        }
+        if (result instanceof SearchTemplateResponse) {
+            return ((SearchTemplateResponse<?>) result).took();
+        }
+        if (result instanceof BulkResponse) {
+            return ((BulkResponse) result).took();
+        }
+        return -1;
+    }
+
+    /**
+     * 一次调用的响应信息，由自定义的响应消费者在IO线程上填写
+     */
+    private static class Probe {
+        private volatile long receivedAt;
+        private volatile long bytes;
+
+        /**
+         * @param deadline 不为null时，从连接池取连接、建立连接、两次读之间的间隔分别不超过该时间，
+         *                 只是各阶段的上限，全程的截止时间由LatencyBudget.within保证
+         */
+        private RestClientOptions options(Duration deadline) {
+            RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
+            if (deadline != null) {
+                int millis = (int) deadline.toMillis();
+                builder.setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(millis)
+                        .setConnectTimeout(millis)
+                        .setSocketTimeout(millis)
+                        .build());
+            }
+            RequestOptions requestOptions = builder
+                    .setHttpAsyncResponseConsumerFactory(() -> new HeapBufferedAsyncResponseConsumer(BUFFER_LIMIT) {
+                        @Override
+                        protected HttpResponse buildResult(HttpContext context) throws Exception {
+                            HttpResponse response = super.buildResult(context);
+                            HttpEntity entity = response.getEntity();
+                            bytes = entity == null ? 0 : Math.max(entity.getContentLength(), 0);
+                            receivedAt = System.nanoTime();
+                            return response;
+                        }
+                    })
+                    .build();
+            return new RestClientOptions(requestOptions);
+        }
+    }
+}
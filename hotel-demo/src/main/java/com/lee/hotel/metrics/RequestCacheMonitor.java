@@ -0,0 +1,87 @@
+package com.lee.hotel.metrics;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.RequestCacheStats;
+import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.index.HotelReindexer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * hotel索引的分片请求缓存统计，/hotel/filters的聚合查询由它缓存
+ * hotel.es.request_cache.hits       命中次数
+ * hotel.es.request_cache.misses     未命中次数
+ * hotel.es.request_cache.evictions  淘汰次数
+ * hotel.es.request_cache.memory     占用内存
+ * 指标被抓取时按需查询ES，间隔不小于REFRESH_MILLIS
+ */
+@Slf4j
+@Component
+public class RequestCacheMonitor {
+
+    private static final long REFRESH_MILLIS = 15_000;
+
+    private final ElasticsearchClient client;
+
+    private volatile RequestCacheSnapshot last = new RequestCacheSnapshot(0, 0, 0, 0, 0);
+
+    public RequestCacheMonitor(ElasticsearchClient client, MeterRegistry registry) {
+        this.client = client;
+        counter(registry, "hotel.es.request_cache.hits", "分片请求缓存命中次数", RequestCacheSnapshot::getHitCount);
+        counter(registry, "hotel.es.request_cache.misses", "分片请求缓存未命中次数", RequestCacheSnapshot::getMissCount);
+        counter(registry, "hotel.es.request_cache.evictions", "分片请求缓存淘汰次数", RequestCacheSnapshot::getEvictions);
+        Gauge.builder("hotel.es.request_cache.memory", this, m -> m.cached().getMemorySizeInBytes())
+                .description("分片请求缓存占用内存")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * 查询最新的统计
+     *
+     * @return
+     */
+    public RequestCacheSnapshot stats() {
+        try {
+            RequestCacheStats stats = client.indices()
+                    .stats(s -> s.index(HotelReindexer.ALIAS).metric("request_cache"))
+                    .all().total().requestCache();
+            last = new RequestCacheSnapshot(System.currentTimeMillis(), stats.hitCount(), stats.missCount(),
+                    stats.evictions(), stats.memorySizeInBytes());
+            return last;
+        } catch (IOException e) {
+            log.error("查询请求缓存统计异常：{}", e.getMessage());
+            throw new ExploException("ES查询请求缓存统计失败");
+        }
+    }
+
+    /**
+     * 上次的统计，超过刷新间隔时重新查询，查询失败时沿用上次的值
+     */
+    private RequestCacheSnapshot cached() {
+        RequestCacheSnapshot snapshot = last;
+        if (System.currentTimeMillis() - snapshot.getTimestamp() < REFRESH_MILLIS) {
+            return snapshot;
+        }
+        try {
+            return stats();
+        } catch (RuntimeException e) {
+            return snapshot;
+        }
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, ToDoubleFunction<RequestCacheSnapshot> value) {
+        FunctionCounter.builder(name, this, m -> value.applyAsDouble(m.cached()))
+                .description(description)
+                .register(registry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.lee.hotel.metrics;
+
+import lombok.Getter;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 索引的分片请求缓存统计，数值为所有分片（含副本）的累计值
+ */
+@Getter
+public class RequestCacheSnapshot {
+    /**
+     * 统计时间
+     */
+    private final long timestamp;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictions;
+    private final long memorySizeInBytes;
+
+    public RequestCacheSnapshot(long timestamp, long hitCount, long missCount, long evictions, long memorySizeInBytes) {
+        this.timestamp = timestamp;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictions = evictions;
+        this.memorySizeInBytes = memorySizeInBytes;
+    }
+
+    /**
+     * 命中率，没有请求时为0
+     */
+    public double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,32 @@
+package com.lee.hotel.mq;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 写入ES失败的类型，不同类型的重试次数不同
+ */
+public enum FailureType {
+    /**
+     * 暂时性失败：请求失败、限流（429）、服务端错误（5xx），延迟后重试大概率成功
+     */
+    TRANSIENT,
+    /**
+     * 文档被ES拒绝（除429外的4xx），如mapping冲突，重试基本不会成功
+     */
+    REJECTED,
+    /**
+     * 消息无法解析，重试不会成功
+     */
+    MALFORMED;
+
+    /**
+     * 按ES返回的单条状态码分类
+     *
+     * @param status
+     * @return
+     */
+    public static FailureType of(int status) {
+        return status == 429 || status >= 500 ? TRANSIENT : REJECTED;
+    }
+}
@@ -0,0 +1,73 @@
+package com.lee.hotel.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.facet.HotelFacetIndex;
+import com.lee.hotel.index.IndexOp;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.suggest.HotelSuggestionIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 每个实例都收到全部酒店变更，同步更新进程内的过滤项索引和自动补全索引
+ * 业务队列中的一条消息只由一个实例消费，只靠写入ES后的事件更新时，其他实例的本地索引会一直过时
+ */
+@Slf4j
+@Component
+public class HotelBroadcastListener {
+
+    private final HotelChangeDecoder decoder;
+
+    private final HotelMapper hotelMapper;
+
+    private final HotelFacetIndex facetIndex;
+
+    private final HotelSuggestionIndex suggestionIndex;
+
+    public HotelBroadcastListener(ObjectMapper objectMapper, HotelMapper hotelMapper,
+                                  HotelFacetIndex facetIndex, HotelSuggestionIndex suggestionIndex) {
+        this.decoder = new HotelChangeDecoder(objectMapper);
+        this.hotelMapper = hotelMapper;
+        this.facetIndex = facetIndex;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    /**
+     * 监听本实例的匿名队列，消息按发件箱的发送顺序到达
+     * 处理失败只记录日志，不重新投递，本地索引在下次全量加载时修正
+     *
+     * @param message 与业务队列中的消息相同
+     */
+    @RabbitListener(queues = "#{broadcastQueue.name}")
+    public void listenHotelChange(Message message) {
+        HotelIndexedEvent event;
+        try {
+            event = toEvent(decoder.decode(message));
+        } catch (RuntimeException e) {
+            log.error("酒店变更广播处理失败：{}", e.getMessage());
+            return;
+        }
+        facetIndex.onHotelChanged(event);
+        suggestionIndex.onHotelChanged(event);
+    }
+
+    private HotelIndexedEvent toEvent(IndexOp op) {
+        if (op.getType() == IndexOp.Type.DELETE) {
+            return new HotelIndexedEvent(op.getId(), null);
+        }
+        // 旧格式的消息只有id，查库取最新数据，数据库里没有时按删除处理
+        Hotel hotel = op.getHotel() != null ? op.getHotel() : hotelMapper.selectById(op.getId());
+        if (hotel == null) {
+            return new HotelIndexedEvent(op.getId(), null);
+        }
+        return new HotelIndexedEvent(op.getId(), new HotelDoc(hotel), op.getChangedFields());
+    }
+}
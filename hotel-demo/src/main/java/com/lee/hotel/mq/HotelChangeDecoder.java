@@ -0,0 +1,75 @@
+package com.lee.hotel.mq;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.constants.MqConstants;
+import com.lee.hotel.index.IndexOp;
+import com.lee.hotel.pojo.HotelChangeEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 把酒店变更消息解析成IndexOp，兼容两种消息格式：
+ * 1.JSON的HotelChangeEvent，携带整行数据和变化的字段，直接写入ES
+ * 2.旧版本Java序列化的酒店id，由索引器查库
+ */
+public class HotelChangeDecoder {
+
+    private final ObjectMapper objectMapper;
+
+    private final SimpleMessageConverter legacyConverter = new SimpleMessageConverter();
+
+    public HotelChangeDecoder(ObjectMapper objectMapper) {
+        // 新版本增加字段时旧的消费者仍然可以解析
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // 旧消息体是Java序列化的Long，只允许反序列化java.lang下的类
+        legacyConverter.addAllowedListPatterns("java.lang.*");
+    }
+
+    /**
+     * @param message
+     * @return
+     * @throws MessageConversionException 消息体无法解析
+     */
+    public IndexOp decode(Message message) {
+        // 业务队列按队列区分，广播队列同时收到两种消息，按RoutingKey区分
+        MessageProperties properties = message.getMessageProperties();
+        boolean delete = MqConstants.HOTEL_DELETE_QUEUE.equals(properties.getConsumerQueue())
+                || MqConstants.HOTEL_DELETE_KEY.equals(properties.getReceivedRoutingKey());
+        if (!isJson(message)) {
+            Long id = (Long) legacyConverter.fromMessage(message);
+            return delete ? IndexOp.delete(id) : IndexOp.upsert(id);
+        }
+
+        HotelChangeEvent event;
+        try {
+            event = objectMapper.readValue(message.getBody(), HotelChangeEvent.class);
+        } catch (IOException e) {
+            throw new MessageConversionException("酒店变更消息解析失败", e);
+        }
+        if (event.getId() == null) {
+            throw new MessageConversionException("酒店变更消息缺少id");
+        }
+        // 变更时间作为ES的外部版本号
+        if (delete) {
+            return IndexOp.delete(event.getId()).withVersion(event.getChangedAt());
+        }
+        // 不认识的版本，字段含义可能变化，按id查库
+        if (event.getVersion() > HotelChangeEvent.VERSION || event.getHotel() == null) {
+            return IndexOp.upsert(event.getId());
+        }
+        return IndexOp.update(event.getHotel(), event.getChangedFields()).withVersion(event.getChangedAt());
+    }
+
+    private boolean isJson(Message message) {
+        String contentType = message.getMessageProperties().getContentType();
+        return contentType != null && contentType.startsWith(MessageProperties.CONTENT_TYPE_JSON);
+    }
+}
@@ -0,0 +1,122 @@
+package com.lee.hotel.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.index.BulkIndexReport;
+import com.lee.hotel.index.HotelBulkIndexer;
+import com.lee.hotel.index.IndexOp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 解析酒店变更消息并批量写入ES，批量消费和分道消费共用
+ * 写入失败的消息交给IndexRetryRouter延迟重试，调用方总是正常确认整批消息
+ */
+@Slf4j
+@Component
+public class HotelChangeHandler {
+
+    private final HotelBulkIndexer bulkIndexer;
+
+    private final HotelChangeDecoder decoder;
+
+    private final IndexRetryRouter retryRouter;
+
+    public HotelChangeHandler(HotelBulkIndexer bulkIndexer, ObjectMapper objectMapper, IndexRetryRouter retryRouter) {
+        this.bulkIndexer = bulkIndexer;
+        this.decoder = new HotelChangeDecoder(objectMapper);
+        this.retryRouter = retryRouter;
+    }
+
+    /**
+     * 解析并写入一批消息
+     *
+     * @param messages
+     */
+    public void handle(List<Message> messages) {
+        List<Message> decoded = new ArrayList<>(messages.size());
+        List<IndexOp> ops = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            IndexOp op = decode(message);
+            if (op != null) {
+                decoded.add(message);
+                ops.add(op);
+            }
+        }
+        index(decoded, ops);
+    }
+
+    /**
+     * 解析一条消息
+     *
+     * @param message
+     * @return 无法解析时转入parking队列并返回null
+     */
+    public IndexOp decode(Message message) {
+        IndexOp op;
+        try {
+            op = decoder.decode(message);
+        } catch (MessageConversionException e) {
+            retryRouter.retry(message, FailureType.MALFORMED, e.getMessage());
+            return null;
+        }
+        if (!retryRouter.isRedelivered(message)) {
+            return op;
+        }
+        // 重试回来的消息与其他变更的顺序无法保证：
+        // 带版本号的由ES拒绝过时的写入，其中的部分修改由索引器按整个文档带版本号写入；
+        // 没有版本号的按id读取数据库的最新数据，数据库里没有时删除文档
+        if (op.getVersion() > 0) {
+            return op;
+        }
+        return IndexOp.upsert(op.getId());
+    }
+
+    /**
+     * 写入已经解析的一批消息，请求失败时整批重试，单条失败时只重试该酒店的消息
+     *
+     * @param messages
+     * @param ops      与messages一一对应
+     */
+    public void index(List<Message> messages, List<IndexOp> ops) {
+        if (ops.isEmpty()) {
+            return;
+        }
+        BulkIndexReport report;
+        try {
+            report = bulkIndexer.index(ops);
+        } catch (RuntimeException e) {
+            log.error("批量写入ES失败，{}条消息延迟重试：{}", messages.size(), e.getMessage());
+            for (Message message : messages) {
+                retryRouter.retry(message, FailureType.TRANSIENT, e.getMessage());
+            }
+            return;
+        }
+        log.info("批量写入ES：{}", report);
+        if (!report.hasFailures()) {
+            return;
+        }
+
+        // 同一家酒店的变更已经合并写入，失败时这家酒店的消息一起重试
+        Map<Long, List<Message>> messagesById = new HashMap<>();
+        for (int i = 0; i < ops.size(); i++) {
+            messagesById.computeIfAbsent(ops.get(i).getId(), k -> new ArrayList<>()).add(messages.get(i));
+        }
+        for (BulkIndexReport.Failure failure : report.getFailures()) {
+            log.error("酒店{}写入ES失败，status：{}，原因：{}", failure.getOp(), failure.getStatus(), failure.getReason());
+            FailureType type = FailureType.of(failure.getStatus());
+            for (Message message : messagesById.getOrDefault(failure.getOp().getId(), new ArrayList<>())) {
+                retryRouter.retry(message, type, failure.getReason());
+            }
+        }
+    }
+}
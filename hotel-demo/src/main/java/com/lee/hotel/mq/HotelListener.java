@@ -1,37 +1,96 @@
 package com.lee.hotel.mq;
 
+import com.lee.hotel.config.IndexProperties;
 import com.lee.hotel.constants.MqConstants;
-import com.lee.hotel.service.IHotelService;
+import com.lee.hotel.index.BatchWindow;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author LiJing
  * @version 1.0
  */
+@Slf4j
 @Component
+@ConditionalOnProperty(prefix = "hotel.index.sharded", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class HotelListener {
-    @Autowired
-    private IHotelService hotelService;
 
-    /**
-     * 监听酒店新增或修改的业务
-     *
-     * @param id 酒店id
-     */
-    @RabbitListener(queues = MqConstants.HOTEL_INSERT_QUEUE)
-    public void listenHotelInsertOrUpdate(Long id) {
-        hotelService.insertById(id);
+    private final HotelChangeHandler handler;
+
+    private final BatchWindow<Delivery> window;
+
+    public HotelListener(HotelChangeHandler handler, IndexProperties properties) {
+        this.handler = handler;
+        this.window = new BatchWindow<>("index-batch", properties.getBatchSize(), properties.getFlushInterval(), this::write);
     }
 
     /**
-     * 监听酒店删除的业务
+     * 监听酒店新增、修改和删除的业务
+     * 攒够batchSize条，或一批第一条到达后等待flushInterval，合并成一个BulkRequest写入ES
+     * 写入失败的消息转入延迟重试队列，写入后整批确认
      *
-     * @param id 酒店id
+     * @param message 消息体为携带整行数据的HotelChangeEvent，或旧版本的酒店id
+     * @param channel
      */
-    @RabbitListener(queues = MqConstants.HOTEL_DELETE_QUEUE)
-    public void listenHotelDelete(Long id) {
-        hotelService.deleteById(id);
+    @RabbitListener(queues = {MqConstants.HOTEL_INSERT_QUEUE, MqConstants.HOTEL_DELETE_QUEUE},
+            containerFactory = "batchContainerFactory")
+    public void listenHotelChange(Message message, Channel channel) {
+        window.add(new Delivery(message, channel));
+    }
+
+    private void write(List<Delivery> deliveries) {
+        List<Message> messages = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            messages.add(delivery.message);
+        }
+        boolean written;
+        try {
+            handler.handle(messages);
+            written = true;
+        } catch (RuntimeException e) {
+            // 转发重试消息也失败，放回原队列重新投递
+            log.error("批量处理{}条消息失败，放回队列：{}", messages.size(), e.getMessage());
+            written = false;
+        }
+        for (Delivery delivery : deliveries) {
+            long tag = delivery.message.getMessageProperties().getDeliveryTag();
+            try {
+                // 计时线程与监听线程共用监听容器的channel
+                synchronized (delivery.channel) {
+                    if (written) {
+                        delivery.channel.basicAck(tag, false);
+                    } else {
+                        delivery.channel.basicNack(tag, false, true);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // 通道已经关闭时消息会被重新投递，按id写入，重复消费没有影响
+                log.warn("确认消息失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        window.shutdown();
+    }
+
+    private static final class Delivery {
+        private final Message message;
+        private final Channel channel;
+
+        private Delivery(Message message, Channel channel) {
+            this.message = message;
+            this.channel = channel;
+        }
     }
 }
@@ -0,0 +1,164 @@
+package com.lee.hotel.mq;
+
+import com.lee.hotel.config.IndexProperties;
+import com.lee.hotel.constants.MqConstants;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageBuilderSupport;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 写入失败的消息转发：
+ * 1.未超过该类失败的最大重试次数时，按重试次数发到对应延迟的重试队列，过期后由RabbitMQ死信回原队列
+ * 2.超过后发到parking队列，排查后通过接口重放
+ * 失败的消息不再原地重新投递，不会阻塞队列中其他正常的消息
+ */
+@Slf4j
+@Component
+public class IndexRetryRouter {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final IndexProperties.Retry properties;
+
+    private final MeterRegistry registry;
+
+    public IndexRetryRouter(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+                            IndexProperties properties, MeterRegistry registry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.properties = properties.getRetry();
+        this.registry = registry;
+    }
+
+    /**
+     * 转发一条写入失败的消息，调用方随后正常确认原消息
+     *
+     * @param message
+     * @param type
+     * @param reason
+     */
+    public void retry(Message message, FailureType type, String reason) {
+        int attempts = attempts(message);
+        String queue = originalQueue(message);
+        MessageBuilderSupport<Message> builder = MessageBuilder.fromClonedMessage(message)
+                .setHeader(MqConstants.HEADER_ORIGINAL_QUEUE, queue)
+                .setHeader(MqConstants.HEADER_FAILURE_TYPE, type.name())
+                .setHeader(MqConstants.HEADER_FAILURE_REASON, reason);
+
+        if (attempts < properties.maxAttempts(type)) {
+            String retryQueue = MqConstants.retryQueue(queue, delay(attempts).toMillis());
+            rabbitTemplate.send("", retryQueue, builder.setHeader(MqConstants.HEADER_RETRY_COUNT, attempts + 1).build());
+            count(type, "retry");
+            log.warn("消息第{}次重试，进入{}：{}，{}", attempts + 1, retryQueue, type, reason);
+        } else {
+            rabbitTemplate.send("", MqConstants.HOTEL_PARKING_QUEUE, builder.build());
+            count(type, "park");
+            log.error("消息重试{}次后转入{}：{}，{}", attempts, MqConstants.HOTEL_PARKING_QUEUE, type, reason);
+        }
+    }
+
+    /**
+     * 是否是重试或重放回来的消息
+     * 这类消息延迟期间同一家酒店可能已有更新的变更写入，没有版本号时消息中的数据不能直接使用
+     *
+     * @param message
+     * @return
+     */
+    public boolean isRedelivered(Message message) {
+        return message.getMessageProperties().getHeader(MqConstants.HEADER_ORIGINAL_QUEUE) != null;
+    }
+
+    /**
+     * 把parking队列中的消息发回原队列，重试次数清零
+     * 先发送再确认，重放中途失败时消息留在parking队列
+     *
+     * @param limit 最多重放的条数
+     * @return 实际重放的条数
+     */
+    public int replay(int limit) {
+        int replayed = 0;
+        while (replayed < limit && Boolean.TRUE.equals(rabbitTemplate.execute(this::replayOne))) {
+            replayed++;
+        }
+        log.info("从{}重放{}条消息", MqConstants.HOTEL_PARKING_QUEUE, replayed);
+        return replayed;
+    }
+
+    private boolean replayOne(Channel channel) throws IOException {
+        GetResponse response = channel.basicGet(MqConstants.HOTEL_PARKING_QUEUE, false);
+        if (response == null) {
+            return false;
+        }
+        long tag = response.getEnvelope().getDeliveryTag();
+        AMQP.BasicProperties props = response.getProps();
+        Map<String, Object> headers = props.getHeaders() == null ? new HashMap<>() : new HashMap<>(props.getHeaders());
+        Object queue = headers.get(MqConstants.HEADER_ORIGINAL_QUEUE);
+        if (queue == null) {
+            // 不是由重试转入的消息，不知道该发回哪里，放回parking队列
+            channel.basicReject(tag, true);
+            return false;
+        }
+        headers.put(MqConstants.HEADER_RETRY_COUNT, 0);
+        channel.basicPublish("", queue.toString(), props.builder().headers(headers).build(), response.getBody());
+        channel.basicAck(tag, false);
+        return true;
+    }
+
+    /**
+     * parking队列中的消息数
+     *
+     * @return
+     */
+    public int parked() {
+        QueueInformation info = amqpAdmin.getQueueInfo(MqConstants.HOTEL_PARKING_QUEUE);
+        return info == null ? 0 : info.getMessageCount();
+    }
+
+    private int attempts(Message message) {
+        Object attempts = message.getMessageProperties().getHeader(MqConstants.HEADER_RETRY_COUNT);
+        return attempts instanceof Number ? ((Number) attempts).intValue() : 0;
+    }
+
+    private String originalQueue(Message message) {
+        Object queue = message.getMessageProperties().getHeader(MqConstants.HEADER_ORIGINAL_QUEUE);
+        return queue != null ? queue.toString() : message.getMessageProperties().getConsumerQueue();
+    }
+
+    /**
+     * 第n次重试使用第n级延迟，超出时使用最后一级
+     */
+    private Duration delay(int attempts) {
+        List<Duration> delays = properties.getDelays();
+        return delays.get(Math.min(attempts, delays.size() - 1));
+    }
+
+    private void count(FailureType type, String outcome) {
+        Counter.builder("hotel.index.retry")
+                .description("写入ES失败后转入重试队列或parking队列的消息数")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+}
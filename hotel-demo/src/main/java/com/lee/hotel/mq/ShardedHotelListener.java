@@ -0,0 +1,116 @@
+package com.lee.hotel.mq;
+
+import com.lee.hotel.config.IndexProperties;
+import com.lee.hotel.constants.MqConstants;
+import com.lee.hotel.index.IndexLanes;
+import com.lee.hotel.index.IndexOp;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 分道消费酒店变更：监听线程只负责解析消息并按酒店id分发，写入ES由各条道并行完成
+ * 同一家酒店的新增、修改、删除始终在同一条道内按顺序写入
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hotel.index.sharded", name = "enabled", havingValue = "true")
+public class ShardedHotelListener {
+
+    private final HotelChangeHandler handler;
+
+    private final IndexLanes<Delivery> lanes;
+
+    public ShardedHotelListener(HotelChangeHandler handler, IndexProperties properties, MeterRegistry registry) {
+        this.handler = handler;
+        IndexProperties.Sharded sharded = properties.getSharded();
+        this.lanes = new IndexLanes<>("index-lane", sharded.getLanes(), sharded.getLaneCapacity(),
+                sharded.getBatchSize(), sharded.getRetryBackoff(), this::write);
+        for (int i = 0; i < lanes.size(); i++) {
+            int lane = i;
+            Gauge.builder("hotel.index.lane.depth", lanes, l -> l.depth(lane))
+                    .description("各条道排队中的酒店变更数")
+                    .tag("lane", String.valueOf(lane))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * 监听酒店新增、修改和删除的业务，按酒店id分发到各条道
+     * 所在道的队列已满时阻塞，未确认的消息数由预取数限制
+     *
+     * @param message 消息体为携带整行数据的HotelChangeEvent，或旧版本的酒店id
+     * @param channel
+     */
+    @RabbitListener(queues = {MqConstants.HOTEL_INSERT_QUEUE, MqConstants.HOTEL_DELETE_QUEUE},
+            containerFactory = "shardedContainerFactory")
+    public void listenHotelChange(Message message, Channel channel) throws IOException, InterruptedException {
+        IndexOp op = handler.decode(message);
+        if (op == null) {
+            // 无法解析的消息已经转入parking队列
+            ack(channel, message);
+            return;
+        }
+        lanes.submit(op.getId(), new Delivery(message, op, channel));
+    }
+
+    /**
+     * 写入一批，写入失败的消息已经转入重试队列，整批确认
+     */
+    private void write(List<Delivery> deliveries) {
+        List<Message> messages = new ArrayList<>(deliveries.size());
+        List<IndexOp> ops = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            messages.add(delivery.message);
+            ops.add(delivery.op);
+        }
+        handler.index(messages, ops);
+        for (Delivery delivery : deliveries) {
+            try {
+                ack(delivery.channel, delivery.message);
+            } catch (IOException | RuntimeException e) {
+                // 通道已经关闭时消息会被重新投递，按id写入，重复消费没有影响
+                log.warn("确认{}失败：{}", delivery.op, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 各条道的线程共用监听容器的channel确认消息
+     */
+    private static void ack(Channel channel, Message message) throws IOException {
+        synchronized (channel) {
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        lanes.shutdown();
+    }
+
+    private static final class Delivery {
+        private final Message message;
+        private final IndexOp op;
+        private final Channel channel;
+
+        private Delivery(Message message, IndexOp op, Channel channel) {
+            this.message = message;
+            this.op = op;
+            this.channel = channel;
+        }
+    }
+}
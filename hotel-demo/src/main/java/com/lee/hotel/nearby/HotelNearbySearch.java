@@ -0,0 +1,305 @@
+package com.lee.hotel.nearby;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.lee.hotel.budget.LatencyBudget;
+import com.lee.hotel.cache.LocalCache;
+import com.lee.hotel.cache.SearchKeys;
+import com.lee.hotel.config.HotelSearchProperties;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.pojo.HotelListItem;
+import com.lee.hotel.pojo.PageResult;
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.query.HotelQueries;
+import com.lee.hotel.slowlog.SlowQueryLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 附近的酒店：按用户所在的geohash格子查询
+ * 1.以格子中心为圆心、由小到大的半径做geo_distance过滤，命中足够时停止扩大
+ * 2.候选结果按(格子, 关键字和过滤条件)缓存，同一格子内的用户共用
+ * 3.到用户的距离和排序在本地计算，ES不再对全部命中按距离排序
+ * 4.总条数是不限半径的命中数，与普通查询一致；ES超时返回部分结果时不缓存，并标记为部分结果
+ * 最大半径仍不能精确覆盖请求的页时，返回null，由调用方走普通的按距离排序查询
+ */
+@Slf4j
+@Component
+public class HotelNearbySearch {
+
+    /**
+     * 不限半径的命中数的聚合名
+     */
+    private static final String MATCHED_AGG = "matched";
+
+    private final SlowQueryLog slowQueryLog;
+
+    private final LatencyBudget budget;
+
+    private final HotelSearchProperties.Nearby properties;
+
+    private final boolean rankFeature;
+
+    private final LocalCache<String, NearbyCandidates> cache;
+
+    public HotelNearbySearch(SlowQueryLog slowQueryLog, LatencyBudget budget, HotelSearchProperties searchProperties) {
+        this.slowQueryLog = slowQueryLog;
+        this.budget = budget;
+        this.properties = searchProperties.getNearby();
+        this.rankFeature = searchProperties.isRankFeature();
+        this.cache = new LocalCache<>(properties.getCacheSize(), properties.getCacheTtl().toMillis());
+    }
+
+    /**
+     * 带坐标、按页分页、且请求的结果在候选上限内时走附近模式
+     */
+    public boolean supports(RequestParams params) {
+        return properties.isEnabled()
+                && params.getCursor() == null
+                && GeoHash.parseLatLon(params.getLocation()) != null
+                && params.getPage() * params.getSize() <= properties.getMaxCandidates();
+    }
+
+    /**
+     * 查询附近的酒店
+     *
+     * @param params
+     * @return 候选不足以精确回答时返回null，由调用方走普通查询
+     */
+    public PageResult search(RequestParams params) {
+        Cell cell = new Cell(params);
+        int needed = params.getPage() * params.getSize();
+        NearbyCandidates candidates = cache.getIfPresent(cell.key);
+        if (candidates != null && !candidates.covers(needed) && !canExpand(candidates)) {
+            return null;
+        }
+        if (candidates == null || !candidates.covers(needed)) {
+            int ring = candidates == null ? 0 : candidates.getRing() + 1;
+            try {
+                candidates = load(cell, params, needed, ring);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            cache(cell, candidates);
+        }
+        return toPageResult(cell, params, candidates);
+    }
+
+    public CompletableFuture<PageResult> searchAsync(RequestParams params) {
+        Cell cell = new Cell(params);
+        int needed = params.getPage() * params.getSize();
+        NearbyCandidates cached = cache.getIfPresent(cell.key);
+        if (cached != null && cached.covers(needed)) {
+            return CompletableFuture.completedFuture(toPageResult(cell, params, cached));
+        }
+        if (cached != null && !canExpand(cached)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int ring = cached == null ? 0 : cached.getRing() + 1;
+        return loadAsync(cell, params, needed, ring).thenApply(candidates -> {
+            cache(cell, candidates);
+            return toPageResult(cell, params, candidates);
+        });
+    }
+
+    /**
+     * 酒店数据变更，缓存整体失效
+     */
+    @EventListener
+    public void onHotelIndexed(HotelIndexedEvent event) {
+        cache.invalidateAll();
+    }
+
+    private void cache(Cell cell, NearbyCandidates candidates) {
+        if (!candidates.isPartial()) {
+            cache.put(cell.key, candidates);
+        }
+    }
+
+    private NearbyCandidates load(Cell cell, RequestParams params, int needed, int startRing) throws IOException {
+        for (int ring = startRing; ; ring++) {
+            SearchRequest request = buildRequest(cell, params, ring);
+            SearchResponse<HotelListItem> response = slowQueryLog.search("search", params, request, HotelListItem.class);
+            NearbyCandidates candidates = toCandidates(cell, ring, response);
+            if (isEnough(candidates, needed)) {
+                return candidates;
+            }
+        }
+    }
+
+    private CompletableFuture<NearbyCandidates> loadAsync(Cell cell, RequestParams params, int needed, int ring) {
+        return slowQueryLog.searchAsync("search", params, buildRequest(cell, params, ring), HotelListItem.class)
+                .thenCompose(response -> {
+                    NearbyCandidates candidates = toCandidates(cell, ring, response);
+                    if (isEnough(candidates, needed)) {
+                        return CompletableFuture.completedFuture(candidates);
+                    }
+                    return loadAsync(cell, params, needed, ring + 1);
+                });
+    }
+
+    /**
+     * 扩大半径能否得到更多的精确结果
+     */
+    private boolean canExpand(NearbyCandidates candidates) {
+        return !candidates.isLastRing() && !candidates.isTruncated();
+    }
+
+    private boolean isEnough(NearbyCandidates candidates, int needed) {
+        // 超时时不再扩大半径，剩余的预算不够再查一次
+        return candidates.covers(needed) || !canExpand(candidates) || candidates.isPartial();
+    }
+
+    /**
+     * 格子中心为圆心的geo_distance过滤，按到中心的距离取最近的maxCandidates条
+     * global聚合在半径之外按相同的条件计数，作为分页的总条数
+     */
+    private SearchRequest buildRequest(Cell cell, RequestParams params, int ring) {
+        double radiusKm = properties.getRadiusKm().get(ring);
+        Query query = HotelQueries.buildQuery(params, rankFeature);
+        String center = cell.centerLat + "," + cell.centerLon;
+        return SearchRequest.of(s -> s
+                .index("hotel")
+                .query(q -> q
+                        .bool(b -> b
+                                .must(query)
+                                .filter(f -> f
+                                        .geoDistance(g -> g
+                                                .field("location")
+                                                .location(l -> l.text(center))
+                                                .distance(radiusKm + "km")
+                                        )
+                                )
+                        )
+                )
+                .source(HotelQueries.LIST_SOURCE)
+                .size(properties.getMaxCandidates())
+                .trackTotalHits(t -> t.enabled(true))
+                .sort(t -> t.geoDistance(HotelQueries.buildGeoDistanceSort(center)))
+                .aggregations(MATCHED_AGG, a -> a
+                        .global(g -> g)
+                        .aggregations(MATCHED_AGG, f -> f.filter(query))
+                )
+                // 超过预算的分片不再等待，返回已完成分片的结果
+                .timeout(budget.esTimeout("search"))
+                .allowPartialSearchResults(true)
+        );
+    }
+
+    private NearbyCandidates toCandidates(Cell cell, int ring, SearchResponse<HotelListItem> response) {
+        List<Hit<HotelListItem>> hits = response.hits().hits();
+        int n = hits.size();
+        List<HotelListItem> hotels = new ArrayList<>(n);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double lastCenterDistance = 0;
+        for (int i = 0; i < n; i++) {
+            Hit<HotelListItem> hit = hits.get(i);
+            hotels.add(hit.source());
+            double[] latLon = GeoHash.parseLatLon(hit.source().getLocation());
+            lat[i] = latLon == null ? Double.NaN : latLon[0];
+            lon[i] = latLon == null ? Double.NaN : latLon[1];
+            List<FieldValue> sort = hit.sort();
+            if (!sort.isEmpty() && sort.get(0).isDouble()) {
+                lastCenterDistance = sort.get(0).doubleValue();
+            }
+        }
+
+        long total = response.hits().total() == null ? n : response.hits().total().value();
+        long matched = response.aggregations().get(MATCHED_AGG).global()
+                .aggregations().get(MATCHED_AGG).filter().docCount();
+        double radiusKm = properties.getRadiusKm().get(ring);
+        boolean truncated = total > n;
+        // 截断时，到中心距离不超过最后一条的酒店都已在候选里
+        double bound = truncated ? Math.min(radiusKm, lastCenterDistance) : radiusKm;
+        // 格子内任意一点到中心不超过cellRadius，到中心距离 <= bound - 2*cellRadius 的酒店一定是该点的前几名
+        double exactBound = bound - 2 * cell.radiusKm;
+        int exactCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(lat[i]) && GeoHash.distanceKm(cell.centerLat, cell.centerLon, lat[i], lon[i]) <= exactBound) {
+                exactCount++;
+            }
+        }
+        boolean lastRing = ring >= properties.getRadiusKm().size() - 1;
+        return new NearbyCandidates(ring, total, matched, hotels, lat, lon, exactCount, lastRing, truncated,
+                response.timedOut());
+    }
+
+    private PageResult toPageResult(Cell cell, RequestParams params, NearbyCandidates candidates) {
+        int needed = params.getPage() * params.getSize();
+        if (!candidates.covers(needed)) {
+            log.debug("格子{}的候选不足以精确回答前{}条，改用普通查询", cell.key, needed);
+            return null;
+        }
+
+        // 按到用户的距离排序
+        List<HotelListItem> hotels = candidates.getHotels();
+        double[] lat = candidates.getLat();
+        double[] lon = candidates.getLon();
+        Integer[] order = new Integer[hotels.size()];
+        double[] distance = new double[hotels.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            distance[i] = Double.isNaN(lat[i]) ? Double.MAX_VALUE
+                    : GeoHash.distanceKm(cell.userLat, cell.userLon, lat[i], lon[i]);
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> distance[i]));
+
+        int from = Math.min((params.getPage() - 1) * params.getSize(), order.length);
+        int to = Math.min(needed, order.length);
+        List<HotelListItem> page = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            // 候选在缓存里共享，拷贝后再写入距离
+            HotelListItem item = new HotelListItem();
+            BeanUtils.copyProperties(hotels.get(i), item);
+            item.setDistance(distance[i]);
+            page.add(item);
+        }
+        PageResult pageResult = new PageResult(candidates.getMatched(), page);
+        pageResult.setPartial(candidates.isPartial());
+        return pageResult;
+    }
+
+    /**
+     * 用户所在的格子
+     */
+    private class Cell {
+        private final String key;
+        private final double userLat;
+        private final double userLon;
+        private final double centerLat;
+        private final double centerLon;
+        /**
+         * 格子中心到角的距离
+         */
+        private final double radiusKm;
+
+        private Cell(RequestParams params) {
+            double[] latLon = GeoHash.parseLatLon(params.getLocation());
+            this.userLat = latLon[0];
+            this.userLon = latLon[1];
+            String hash = GeoHash.encode(userLat, userLon, properties.getPrecision());
+            double[] bounds = GeoHash.bounds(hash);
+            this.centerLat = (bounds[0] + bounds[1]) / 2;
+            this.centerLon = (bounds[2] + bounds[3]) / 2;
+            this.radiusKm = GeoHash.distanceKm(centerLat, centerLon, bounds[1], bounds[3]);
+            this.key = hash + "|" + SearchKeys.filterKey(params);
+        }
+    }
+}
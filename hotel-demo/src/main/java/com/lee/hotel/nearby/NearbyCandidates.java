@@ -0,0 +1,73 @@
+package com.lee.hotel.nearby;
+
+import com.lee.hotel.pojo.HotelListItem;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一个geohash格子在某个半径内的候选酒店，按到格子中心的距离升序
+ * 格子内任意一点到这些酒店的距离都在本地计算
+ */
+@Getter
+public class NearbyCandidates {
+    /**
+     * 使用的半径在配置中的下标
+     */
+    private final int ring;
+    /**
+     * 半径内的命中总数
+     */
+    private final long total;
+    /**
+     * 不限半径的命中总数，与普通查询的total一致，作为分页的总条数
+     */
+    private final long matched;
+    /**
+     * 候选酒店及其坐标，坐标无法解析时为NaN
+     */
+    private final List<HotelListItem> hotels;
+    private final double[] lat;
+    private final double[] lon;
+    /**
+     * 格子内任意一点，到它的距离排在前exactCount的酒店一定都在候选里
+     */
+    private final int exactCount;
+    /**
+     * 已用到最大半径，不能再扩大
+     */
+    private final boolean lastRing;
+    /**
+     * 候选数达到上限被截断，扩大半径也无法得到更多的精确结果
+     */
+    private final boolean truncated;
+    /**
+     * ES超时只返回了部分分片的结果，不写入缓存
+     */
+    private final boolean partial;
+
+    public NearbyCandidates(int ring, long total, long matched, List<HotelListItem> hotels, double[] lat, double[] lon,
+                            int exactCount, boolean lastRing, boolean truncated, boolean partial) {
+        this.ring = ring;
+        this.total = total;
+        this.matched = matched;
+        this.hotels = hotels;
+        this.lat = lat;
+        this.lon = lon;
+        this.exactCount = exactCount;
+        this.lastRing = lastRing;
+        this.truncated = truncated;
+        this.partial = partial;
+    }
+
+    /**
+     * 是否能精确回答需要前needed条的请求
+     * 最大半径也只包含半径内的酒店，半径外更远的酒店同样属于普通查询的结果，不能视为完整
+     */
+    public boolean covers(int needed) {
+        return exactCount >= needed;
+    }
+}
@@ -0,0 +1,39 @@
+package com.lee.hotel.pojo;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * hotel-admin发送的酒店变更消息，携带变更后的整行数据
+ */
+@Data
+@NoArgsConstructor
+public class HotelChangeEvent {
+    /**
+     * 能够解析的消息格式版本，更高的版本按id查库
+     */
+    public static final int VERSION = 1;
+
+    private int version;
+    /**
+     * 酒店id
+     */
+    private Long id;
+    /**
+     * 变更后的酒店数据，删除时为null
+     */
+    private Hotel hotel;
+    /**
+     * 修改时变化的字段（Hotel的属性名），为null时按整行写入
+     */
+    private List<String> changedFields;
+    /**
+     * 变更时间，毫秒时间戳
+     */
+    private long changedAt;
+}
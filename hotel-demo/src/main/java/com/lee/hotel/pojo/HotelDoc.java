@@ -11,6 +11,11 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 public class HotelDoc {
+    /**
+     * 广告特征字段，rank_feature类型
+     */
+    public static final String AD_RANK_FIELD = "adRank";
+
     private Long id;
     private String name;
     private String address;
@@ -24,8 +29,10 @@ public class HotelDoc {
     private String pic;
     // 排序时的 距离值
     private Object distance;
-    // 广告标记
+    // 广告标记，来自tb_hotel.is_ad
     private Boolean isAD;
+    // 广告特征，由isAD生成，非广告为null不写入
+    private Float adRank;
     // 自动补全字段
     private List<String> suggestion;
 
@@ -41,23 +48,47 @@ public class HotelDoc {
         this.business = hotel.getBusiness();
         this.location = hotel.getLatitude() + ", " + hotel.getLongitude();
         this.pic = hotel.getPic();
+        setIsAD(hotel.getIsAD());
         // 组装suggestion
-        if (this.business.contains("、")) {
+        this.suggestion = buildSuggestion(this.brand, this.business);
+    }
+
+    /**
+     * 设置广告标记时同步生成广告特征，rank_feature只接受正数，非广告不写入
+     *
+     * @param isAD
+     */
+    public void setIsAD(Boolean isAD) {
+        this.isAD = isAD;
+        this.adRank = Boolean.TRUE.equals(isAD) ? 1.0f : null;
+    }
+
+    /**
+     * 组装自动补全字段：品牌 + 商圈（商圈可能用、或/分隔多个值）
+     *
+     * @param brand
+     * @param business
+     * @return
+     */
+    public static List<String> buildSuggestion(String brand, String business) {
+        List<String> suggestion;
+        if (business.contains("、")) {
             // business有多个值，需要切割
-            String[] arr = this.business.split("、");
+            String[] arr = business.split("、");
             // 添加元素
-            this.suggestion = new ArrayList<>();
-            this.suggestion.add(this.brand);
-            Collections.addAll(this.suggestion, arr);
-        } else if (this.business.contains("/")) {
+            suggestion = new ArrayList<>();
+            suggestion.add(brand);
+            Collections.addAll(suggestion, arr);
+        } else if (business.contains("/")) {
             // business有多个值，需要切割
-            String[] arr = this.business.split("/");
+            String[] arr = business.split("/");
             // 添加元素
-            this.suggestion = new ArrayList<>();
-            this.suggestion.add(this.brand);
-            Collections.addAll(this.suggestion, arr);
+            suggestion = new ArrayList<>();
+            suggestion.add(brand);
+            Collections.addAll(suggestion, arr);
         } else {
-            this.suggestion = Arrays.asList(this.brand, this.business);
+            suggestion = Arrays.asList(brand, business);
         }
+        return suggestion;
     }
 }
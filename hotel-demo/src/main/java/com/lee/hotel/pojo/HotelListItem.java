@@ -0,0 +1,36 @@
+package com.lee.hotel.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店列表项，只包含列表页展示需要的字段
+ * 不包含suggestion、brand、city等列表页用不到的字段
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HotelListItem {
+    /**
+     * 搜索时从_source中读取的字段，与本类的字段一一对应（distance除外）
+     */
+    public static final String[] SOURCE_FIELDS = {
+            "id", "name", "address", "price", "score", "starName", "business", "location", "pic", "isAD"
+    };
+
+    private Long id;
+    private String name;
+    private String address;
+    private Integer price;
+    private Integer score;
+    private String starName;
+    private String business;
+    private String location;
+    private String pic;
+    // 排序时的 距离值
+    private Object distance;
+    // 广告标记
+    private Boolean isAD;
+}
@@ -1,6 +1,6 @@
 package com.lee.hotel.pojo;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -12,8 +12,23 @@ import java.util.List;
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PageResult {
     private Long total;
-    private List<HotelDoc> hotels;
+    private List<HotelListItem> hotels;
+    // 游标分页时下一页的游标，没有下一页时为null
+    private String cursor;
+    // ES超时只返回了部分分片的结果，不写入缓存
+    @JsonIgnore
+    private boolean partial;
+
+    public PageResult(Long total, List<HotelListItem> hotels) {
+        this.total = total;
+        this.hotels = hotels;
+    }
+
+    public PageResult(Long total, List<HotelListItem> hotels, String cursor) {
+        this.total = total;
+        this.hotels = hotels;
+        this.cursor = cursor;
+    }
 }
@@ -20,4 +20,30 @@ public class RequestParams {
     private Integer maxPrice;
     // 我当前的地理坐标
     private String location;
+    // 游标分页：第一页传空字符串，之后传上一页返回的cursor；为null时按page分页
+    private String cursor;
+
+    /**
+     * 去掉字符串条件前后的空格，只有空白的条件视为没有传
+     * 缓存key和ES查询都由归一化之后的参数生成，两者始终一致
+     *
+     * @return this
+     */
+    public RequestParams normalize() {
+        key = trimToNull(key);
+        sortBy = trimToNull(sortBy);
+        city = trimToNull(city);
+        brand = trimToNull(brand);
+        starName = trimToNull(starName);
+        location = trimToNull(location);
+        return this;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
 }
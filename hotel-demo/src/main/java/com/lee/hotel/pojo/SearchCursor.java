@@ -0,0 +1,108 @@
+package com.lee.hotel.pojo;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.exception.BadRequestException;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 游标分页的游标：point-in-time id + 上一页最后一条结果的排序值
+ * 对前端是不透明的base64字符串
+ */
+@Data
+@NoArgsConstructor
+public class SearchCursor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String pitId;
+    private List<Object> searchAfter;
+
+    public SearchCursor(String pitId, List<FieldValue> sortValues) {
+        this.pitId = pitId;
+        this.searchAfter = new ArrayList<>(sortValues.size());
+        for (FieldValue sortValue : sortValues) {
+            this.searchAfter.add(sortValue._get());
+        }
+    }
+
+    /**
+     * 还原成search_after参数
+     *
+     * @return
+     */
+    public List<FieldValue> toFieldValues() {
+        List<FieldValue> values = new ArrayList<>(searchAfter.size());
+        for (Object value : searchAfter) {
+            if (value == null) {
+                values.add(FieldValue.NULL);
+            } else if (value instanceof Double || value instanceof Float) {
+                values.add(FieldValue.of(((Number) value).doubleValue()));
+            } else if (value instanceof Number) {
+                values.add(FieldValue.of(((Number) value).longValue()));
+            } else if (value instanceof Boolean) {
+                values.add(FieldValue.of((Boolean) value));
+            } else {
+                values.add(FieldValue.of(value.toString()));
+            }
+        }
+        return values;
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException e) {
+            throw new IllegalStateException("cursor编码失败", e);
+        }
+    }
+
+    /**
+     * 解析前端传回的cursor，空字符串表示第一页
+     *
+     * @param cursor
+     * @return 第一页返回null
+     */
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        SearchCursor decoded;
+        try {
+            decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SearchCursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BadRequestException("cursor无效：" + cursor);
+        }
+        if (decoded == null || decoded.getPitId() == null || decoded.getSearchAfter() == null
+                || decoded.getSearchAfter().isEmpty()) {
+            throw new BadRequestException("cursor无效：" + cursor);
+        }
+        return decoded;
+    }
+
+    /**
+     * PIT已经过期或被释放，ES返回404 search_context_missing_exception
+     *
+     * @param e
+     * @return
+     */
+    public static boolean isExpired(Throwable e) {
+        while (e != null && !(e instanceof ElasticsearchException)) {
+            e = e.getCause();
+        }
+        if (e == null) {
+            return false;
+        }
+        ElasticsearchException ee = (ElasticsearchException) e;
+        return ee.status() == 404 || "search_context_missing_exception".equals(ee.error().type());
+    }
+}
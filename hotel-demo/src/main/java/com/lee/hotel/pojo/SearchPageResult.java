@@ -0,0 +1,27 @@
+package com.lee.hotel.pojo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 搜索结果 + 品牌、城市、星级的聚合结果，一次ES请求返回
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class SearchPageResult extends PageResult {
+    private Map<String, List<String>> filters;
+
+    public SearchPageResult(PageResult pageResult, Map<String, List<String>> filters) {
+        super(pageResult.getTotal(), pageResult.getHotels(), pageResult.getCursor());
+        setPartial(pageResult.isPartial());
+        this.filters = filters;
+    }
+}
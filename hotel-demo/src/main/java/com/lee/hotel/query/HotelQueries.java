@@ -0,0 +1,227 @@
+package com.lee.hotel.query;
+
+import co.elastic.clients.elasticsearch._types.DistanceUnit;
+import co.elastic.clients.elasticsearch._types.GeoDistanceSort;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScore;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.MatchQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.RankFeatureQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.json.JsonData;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.pojo.HotelListItem;
+import com.lee.hotel.pojo.RequestParams;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店搜索的查询构建
+ * 客户端的查询对象构建后不可变，与请求参数无关的部分只构建一次，每次请求只组装变化的部分
+ */
+public class HotelQueries {
+
+    /**
+     * 列表页只取需要展示的字段，减少ES传输和反序列化的数据量
+     */
+    public static final SourceConfig LIST_SOURCE = SourceConfig.of(s -> s
+            .filter(f -> f.includes(Arrays.asList(HotelListItem.SOURCE_FIELDS))));
+
+    /**
+     * 没有关键字时的查询
+     */
+    public static final Query MATCH_ALL = MatchAllQuery.of(m -> m)._toQuery();
+
+    /**
+     * 广告酒店的算分倍数
+     */
+    public static final double AD_WEIGHT = 10.0;
+
+    /**
+     * 广告酒店算分乘以10
+     */
+    public static final FunctionScore AD_BOOST = FunctionScore.of(f -> f
+            .filter(q -> q
+                    .term(t -> t
+                            .field("isAD")
+                            .value(true)
+                    )
+            )
+            .weight(AD_WEIGHT)
+    );
+
+    /**
+     * 索引时写入的广告特征，广告酒店加 (AD_WEIGHT - 1) * adRank 分
+     * 没有关键字时原始算分都是1，与AD_BOOST的乘法得到相同的分数
+     * 有关键字时是加分而不是乘分，相关度越高广告的优势越小，排序与AD_BOOST不完全相同，
+     * 这是为了让ES能跳过不可能进入前N的文档而接受的差异，差异的上限由AdRankTest的排序相关系数约束
+     */
+    public static final Query AD_RANK = RankFeatureQuery.of(r -> r
+            .field(HotelDoc.AD_RANK_FIELD)
+            .linear(l -> l)
+            .boost((float) (AD_WEIGHT - 1))
+    )._toQuery();
+
+    /**
+     * 品牌、城市、星级的聚合
+     */
+    public static final Map<String, Aggregation> FILTER_AGGREGATIONS = buildAggregation();
+
+    public static final SortOptions SCORE_DESC = SortOptions.of(t -> t.score(s -> s.order(SortOrder.Desc)));
+
+    public static final SortOptions ID_ASC = SortOptions.of(t -> t.field(f -> f.field("id").order(SortOrder.Asc)));
+
+    /**
+     * 城市、品牌、星级的取值有限，term过滤条件按取值缓存
+     */
+    private static final int MAX_CACHED_TERMS = 2048;
+
+    private static final Map<String, Query> TERM_QUERIES = new ConcurrentHashMap<>();
+
+    private HotelQueries() {
+    }
+
+    /**
+     * 列表查询
+     *
+     * @param params
+     * @param rankFeature true：广告加权使用索引时写入的rank_feature，false：使用function_score
+     * @return
+     */
+    public static Query buildQuery(RequestParams params, boolean rankFeature) {
+        return rankFeature ? buildRankFeatureQuery(params)._toQuery() : buildBasicQuery(params)._toQuery();
+    }
+
+    /**
+     * 关键字、过滤条件和广告加权组成的function_score查询
+     *
+     * @param params
+     * @return
+     */
+    public static FunctionScoreQuery buildBasicQuery(RequestParams params) {
+        // function_score query 算分控制
+        return FunctionScoreQuery.of(f -> f
+                .query(buildBoolQuery(params))
+                .functions(AD_BOOST)
+                .boostMode(FunctionBoostMode.Multiply)
+        );
+    }
+
+    /**
+     * 关键字、过滤条件的查询，广告加权作为should子句加到算分上
+     * rank_feature的算分有上界，ES可以跳过不可能进入前N的文档
+     *
+     * @param params
+     * @return
+     */
+    public static BoolQuery buildRankFeatureQuery(RequestParams params) {
+        return BoolQuery.of(b -> b
+                .must(buildBoolQuery(params))
+                .should(AD_RANK)
+        );
+    }
+
+    private static Query buildBoolQuery(RequestParams params) {
+        String key = params.getKey();
+        Integer maxPrice = params.getMaxPrice();
+        Integer minPrice = params.getMinPrice();
+
+        // 1.原始查询，根据相关性算分
+        BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
+
+        // 关键字搜索 Search by "all"
+        if (!StringUtils.hasLength(key)) {
+            boolQueryBuilder.must(MATCH_ALL);
+        } else {
+            boolQueryBuilder.must(MatchQuery.of(m -> m
+                    .field("all")
+                    .query(key)
+            )._toQuery());
+        }
+
+        // Search by city、brand、starName
+        addTermFilter(boolQueryBuilder, "city", params.getCity());
+        addTermFilter(boolQueryBuilder, "brand", params.getBrand());
+        addTermFilter(boolQueryBuilder, "starName", params.getStarName());
+
+        // Search by price
+        if (maxPrice != null && minPrice != null) {
+            boolQueryBuilder.filter(RangeQuery.of(r -> r
+                    .field("price")
+                    .gte(JsonData.of(minPrice))
+                    .lte(JsonData.of(maxPrice))
+            )._toQuery());
+        }
+
+        return boolQueryBuilder.build()._toQuery();
+    }
+
+    /**
+     * 按距离升序，单位公里
+     *
+     * @param location 坐标，格式为 "纬度, 经度"
+     * @return
+     */
+    public static GeoDistanceSort buildGeoDistanceSort(String location) {
+        return GeoDistanceSort.of(g -> g
+                .field("location")
+                .location(l -> l.text(location))
+                .order(SortOrder.Asc)
+                .unit(DistanceUnit.Kilometers)
+        );
+    }
+
+    private static void addTermFilter(BoolQuery.Builder boolQueryBuilder, String field, String value) {
+        if (StringUtils.hasLength(value)) {
+            boolQueryBuilder.filter(termQuery(field, value));
+        }
+    }
+
+    static Query termQuery(String field, String value) {
+        String cacheKey = field + '\u0000' + value;
+        Query query = TERM_QUERIES.get(cacheKey);
+        if (query != null) {
+            return query;
+        }
+        query = TermQuery.of(m -> m
+                .field(field)
+                .value(value)
+        )._toQuery();
+        // 超过上限不再缓存，防止任意输入撑满内存
+        if (TERM_QUERIES.size() < MAX_CACHED_TERMS) {
+            TERM_QUERIES.putIfAbsent(cacheKey, query);
+        }
+        return query;
+    }
+
+    /**
+     * 构建品牌、城市、星级的聚合，请求中使用FILTER_AGGREGATIONS，这里保留给基准测试对比
+     *
+     * @return
+     */
+    public static Map<String, Aggregation> buildAggregation() {
+        String[] filterFields = {"brand", "city", "starName"};
+        Map<String, Aggregation> aggregationMap = new HashMap<>();
+        for (String filterField : filterFields) {
+            aggregationMap.put(filterField + "Agg",
+                    new Aggregation.Builder().terms(t -> t.field(filterField).size(100)).build());
+        }
+        return Collections.unmodifiableMap(aggregationMap);
+    }
+}
@@ -0,0 +1,116 @@
+package com.lee.hotel.query;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchTemplateResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import com.lee.hotel.pojo.HotelListItem;
+import com.lee.hotel.pojo.PageResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 酒店搜索的响应解析
+ */
+public class HotelResponses {
+
+    private HotelResponses() {
+    }
+
+    /**
+     * 解析命中结果，ES超时返回部分结果时做标记
+     *
+     * @param response
+     * @param sortByDistance
+     * @return
+     */
+    public static PageResult toPageResult(ResponseBody<HotelListItem> response, boolean sortByDistance) {
+        PageResult pageResult = toPageResult(response.hits(), sortByDistance);
+        pageResult.setPartial(response.timedOut());
+        return pageResult;
+    }
+
+    /**
+     * 解析模板搜索的命中结果，ES超时返回部分结果时做标记
+     *
+     * @param response
+     * @param sortByDistance
+     * @return
+     */
+    public static PageResult toPageResult(SearchTemplateResponse<HotelListItem> response, boolean sortByDistance) {
+        PageResult pageResult = toPageResult(response.hits(), sortByDistance);
+        pageResult.setPartial(response.timedOut());
+        return pageResult;
+    }
+
+    /**
+     * 解析命中结果
+     *
+     * @param hitsMetadata
+     * @param sortByDistance 按距离排序时第一个排序值就是距离
+     * @return
+     */
+    public static PageResult toPageResult(HitsMetadata<HotelListItem> hitsMetadata, boolean sortByDistance) {
+        //获取总条数
+        TotalHits total = hitsMetadata.total();
+        long totalValue = total.value();
+
+        List<HotelListItem> hotels = new ArrayList<>();
+        List<Hit<HotelListItem>> hits = hitsMetadata.hits();
+        for (Hit<HotelListItem> hit : hits) {
+            HotelListItem hotelDoc = hit.source();
+            //获取排序值，按距离排序时第一个排序值就是距离
+            List<FieldValue> sortValues = hit.sort();
+            if (sortByDistance && sortValues.size() > 0) {
+                FieldValue fieldValue = sortValues.get(0);
+                Object sortValue = fieldValue._get();
+                hotelDoc.setDistance(sortValue);
+            }
+            hotels.add(hotelDoc);
+        }
+
+        return new PageResult(totalValue, hotels);
+    }
+
+    /**
+     * 解析品牌、城市、星级的聚合结果
+     *
+     * @param aggregations
+     * @return
+     */
+    public static Map<String, List<String>> filters(Map<String, Aggregate> aggregations) {
+        Map<String, List<String>> result = new HashMap<>();
+
+        List<String> brandList = getAggByName(aggregations, "brandAgg");
+        result.put("brand", brandList);
+        List<String> cityList = getAggByName(aggregations, "cityAgg");
+        result.put("city", cityList);
+        List<String> starNameList = getAggByName(aggregations, "starNameAgg");
+        result.put("starName", starNameList);
+
+        return result;
+    }
+
+    private static List<String> getAggByName(Map<String, Aggregate> aggregations, String aggName) {
+        List<StringTermsBucket> buckets = aggregations.get(aggName).sterms().buckets().array();
+
+        List<String> keyList = new ArrayList<>();
+
+        for (StringTermsBucket bucket : buckets) {
+            String key = bucket.key().stringValue();
+            keyList.add(key);
+        }
+
+        return keyList;
+    }
+}
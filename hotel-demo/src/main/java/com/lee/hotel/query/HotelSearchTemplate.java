@@ -0,0 +1,122 @@
+package com.lee.hotel.query;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchTemplateRequest;
+import co.elastic.clients.json.JsonData;
+import com.lee.hotel.budget.LatencyBudget;
+import com.lee.hotel.config.HotelSearchProperties;
+import com.lee.hotel.pojo.RequestParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * /hotel/list 的查询注册为ES的search template，请求时只发送模板id和参数
+ * 模板内容与HotelQueries.buildQuery保持一致，超时与普通查询一样取自延迟预算
+ */
+@Slf4j
+@Component
+public class HotelSearchTemplate {
+
+    public static final String TEMPLATE_ID = "hotel-list";
+
+    private static final String TEMPLATE_FILE = "hotel-search-template.mustache";
+
+    @Autowired
+    private ElasticsearchClient client;
+    @Autowired
+    private HotelSearchProperties searchProperties;
+    @Autowired
+    private LatencyBudget budget;
+
+    private volatile boolean ready;
+
+    /**
+     * 启动后注册模板，注册失败时退回到普通查询
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void register() {
+        if (!searchProperties.isTemplate()) {
+            return;
+        }
+        try (InputStream input = this.getClass().getResourceAsStream("/" + TEMPLATE_FILE)) {
+            String source = StreamUtils.copyToString(input, StandardCharsets.UTF_8);
+            client.putScript(p -> p
+                    .id(TEMPLATE_ID)
+                    .script(s -> s
+                            .lang("mustache")
+                            .source(source)
+                    )
+            );
+            ready = true;
+            log.info("搜索模板{}注册完成", TEMPLATE_ID);
+        } catch (IOException | RuntimeException e) {
+            log.warn("搜索模板{}注册失败，使用普通查询：{}", TEMPLATE_ID, e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 分页查询的模板请求
+     *
+     * @param index
+     * @param params
+     * @return
+     */
+    public SearchTemplateRequest buildRequest(String index, RequestParams params) {
+        Map<String, JsonData> templateParams = templateParams(params);
+        if (searchProperties.isRankFeature()) {
+            templateParams.put("rankFeature", JsonData.of(true));
+        }
+        // 超过预算的分片不再等待，返回已完成分片的结果
+        String timeout = budget.esTimeout("search");
+        if (timeout != null) {
+            templateParams.put("timeout", JsonData.of(timeout));
+        }
+        return SearchTemplateRequest.of(s -> s
+                .index(index)
+                .id(TEMPLATE_ID)
+                .params(templateParams)
+        );
+    }
+
+    static Map<String, JsonData> templateParams(RequestParams params) {
+        Map<String, JsonData> map = new HashMap<>();
+        map.put("from", JsonData.of((params.getPage() - 1) * params.getSize()));
+        map.put("size", JsonData.of(params.getSize()));
+        putIfHasLength(map, "key", params.getKey());
+        putIfHasLength(map, "city", params.getCity());
+        putIfHasLength(map, "brand", params.getBrand());
+        putIfHasLength(map, "starName", params.getStarName());
+        putIfHasLength(map, "location", params.getLocation());
+        // 与buildBasicQuery保持一致：最高价和最低价都存在时价格条件才生效
+        if (params.getMaxPrice() != null && params.getMinPrice() != null) {
+            map.put("price", JsonData.of(true));
+            map.put("minPrice", JsonData.of(params.getMinPrice()));
+            map.put("maxPrice", JsonData.of(params.getMaxPrice()));
+        }
+        return map;
+    }
+
+    private static void putIfHasLength(Map<String, JsonData> map, String name, String value) {
+        if (StringUtils.hasLength(value)) {
+            map.put(name, JsonData.of(value));
+        }
+    }
+}
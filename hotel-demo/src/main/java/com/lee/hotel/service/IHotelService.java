@@ -4,9 +4,11 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.lee.hotel.pojo.Hotel;
 import com.lee.hotel.pojo.PageResult;
 import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.pojo.SearchPageResult;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface IHotelService extends IService<Hotel> {
     /**
@@ -18,6 +20,15 @@ public interface IHotelService extends IService<Hotel> {
     PageResult search(RequestParams params);
 
 
+    /**
+     * 搜索酒店数据，不阻塞调用线程
+     *
+     * @param params
+     * @return
+     */
+    CompletableFuture<PageResult> searchAsync(RequestParams params);
+
+
     /**
      * 获取品牌、城市、星级字段的聚合结果
      *
@@ -27,26 +38,47 @@ public interface IHotelService extends IService<Hotel> {
 
 
     /**
-     * 实现搜索框自动补全
+     * 获取品牌、城市、星级字段的聚合结果，不阻塞调用线程
      *
-     * @param prefix
+     * @param params
      * @return
      */
-    List<String> getSuggestions(String prefix);
+    CompletableFuture<Map<String, List<String>>> filtersAsync(RequestParams params);
 
 
     /**
-     * 新增或修改酒店数据
+     * 搜索酒店数据，同时返回品牌、城市、星级字段的聚合结果
+     * 一次ES请求完成，代替先后调用search和filters
      *
-     * @param id
+     * @param params
+     * @return
      */
-    void insertById(Long id);
+    SearchPageResult searchWithFilters(RequestParams params);
 
 
     /**
-     * 删除酒店数据
+     * 搜索酒店数据，同时返回聚合结果，不阻塞调用线程
      *
-     * @param id
+     * @param params
+     * @return
+     */
+    CompletableFuture<SearchPageResult> searchWithFiltersAsync(RequestParams params);
+
+
+    /**
+     * 实现搜索框自动补全
+     *
+     * @param prefix
+     * @return
+     */
+    List<String> getSuggestions(String prefix);
+
+
+    /**
+     * 实现搜索框自动补全，不阻塞调用线程
+     *
+     * @param prefix
+     * @return
      */
-    void deleteById(Long id);
+    CompletableFuture<List<String>> getSuggestionsAsync(String prefix);
 }
@@ -1,36 +1,49 @@
 package com.lee.hotel.service.impl;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.*;
-import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
-import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
-import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
-import co.elastic.clients.elasticsearch.core.DeleteResponse;
-import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchTemplateResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
-import co.elastic.clients.elasticsearch.core.search.TotalHits;
-import co.elastic.clients.json.JsonData;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lee.hotel.budget.CircuitBreaker;
+import com.lee.hotel.budget.LatencyBudget;
+import com.lee.hotel.cache.HotelSearchCache;
+import com.lee.hotel.cache.QueryCoalescer;
+import com.lee.hotel.cache.SearchKeys;
+import com.lee.hotel.config.HotelSearchProperties;
+import com.lee.hotel.exception.BadRequestException;
+import com.lee.hotel.exception.ExploException;
+import com.lee.hotel.facet.HotelFacetIndex;
 import com.lee.hotel.handle.ElasticsearchHandle;
 import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.nearby.HotelNearbySearch;
 import com.lee.hotel.pojo.Hotel;
-import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.pojo.HotelListItem;
 import com.lee.hotel.pojo.PageResult;
 import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.pojo.SearchCursor;
+import com.lee.hotel.pojo.SearchPageResult;
+import com.lee.hotel.query.HotelQueries;
+import com.lee.hotel.query.HotelResponses;
+import com.lee.hotel.query.HotelSearchTemplate;
 import com.lee.hotel.service.IHotelService;
+import com.lee.hotel.slowlog.SlowQueryLog;
+import com.lee.hotel.suggest.HotelSuggestionIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Service
@@ -38,233 +51,376 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
     @Autowired
     private ElasticsearchClient client;
     @Autowired
+    private ElasticsearchAsyncClient asyncClient;
+    @Autowired
     private ElasticsearchHandle handle;
+    @Autowired
+    private HotelSearchCache searchCache;
+    @Autowired
+    private HotelSearchProperties searchProperties;
+    @Autowired
+    private HotelSearchTemplate searchTemplate;
+    @Autowired
+    private HotelNearbySearch nearbySearch;
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+    @Autowired
+    private HotelSuggestionIndex suggestionIndex;
+    @Autowired
+    private HotelFacetIndex facetIndex;
+    @Autowired
+    private LatencyBudget budget;
+    @Autowired
+    private QueryCoalescer coalescer;
 
 
     @Override
     public PageResult search(RequestParams params) {
+        // 缓存key和ES查询使用同一份归一化的参数
+        params.normalize();
+        if (params.getCursor() != null) {
+            // 游标在进入预算之前解析，无效的游标是请求错误，不计入熔断
+            SearchCursor cursor = SearchCursor.decode(params.getCursor());
+            // 游标分页，每一页都依赖上一页的游标，不走缓存，也没有可兜底的结果
+            return budget.call("search", null, () -> searchAfter(params, cursor));
+        }
+        if (nearbySearch.supports(params) && budget.state("search") == CircuitBreaker.State.CLOSED) {
+            try {
+                // 附近模式同样受预算约束，超时和ES故障计入熔断器；没有兜底，失败时走普通查询
+                PageResult result = budget.call("search", null, () -> nearbySearch.search(params));
+                if (result != null) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // 失败时走普通查询，由熔断器决定是否兜底
+                log.warn("附近的酒店查询失败：{}", e.getMessage());
+            }
+        }
+        String key = searchCache.key("list", params);
+        return searchCache.get("list", params, () -> budget.call("search", key, () -> {
+            try {
+                if (searchTemplate.isReady()) {
+                    // 模板已注册在ES，只发送模板id和参数
+                    SearchTemplateResponse<HotelListItem> response = slowQueryLog.searchTemplate("search", params,
+                            searchTemplate.buildRequest("hotel", params), HotelListItem.class);
+                    return HotelResponses.toPageResult(response, StringUtils.hasLength(params.getLocation()));
+                }
+                SearchResponse<HotelListItem> response = slowQueryLog.search("search", params, buildSearchRequest(params, false), HotelListItem.class);
+                // 解析响应
+                return HotelResponses.toPageResult(response, StringUtils.hasLength(params.getLocation()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+    }
+
+
+    @Override
+    public CompletableFuture<PageResult> searchAsync(RequestParams params) {
+        params.normalize();
+        if (params.getCursor() != null) {
+            SearchCursor cursor = SearchCursor.decode(params.getCursor());
+            return budget.callAsync("search", null, () -> searchAfterAsync(params, cursor));
+        }
+        if (nearbySearch.supports(params) && budget.state("search") == CircuitBreaker.State.CLOSED) {
+            return budget.callAsync("search", null, () -> nearbySearch.searchAsync(params))
+                    .exceptionally(e -> {
+                        log.warn("附近的酒店查询失败：{}", e.getMessage());
+                        return null;
+                    })
+                    .thenCompose(result -> result != null ? CompletableFuture.completedFuture(result) : searchPageAsync(params));
+        }
+        return searchPageAsync(params);
+    }
+
+
+    private CompletableFuture<PageResult> searchPageAsync(RequestParams params) {
+        boolean sortByDistance = StringUtils.hasLength(params.getLocation());
+        String key = searchCache.key("list", params);
+        return searchCache.getAsync("list", params, () -> budget.callAsync("search", key, () -> {
+            if (searchTemplate.isReady()) {
+                return slowQueryLog
+                        .searchTemplateAsync("search", params, searchTemplate.buildRequest("hotel", params), HotelListItem.class)
+                        .thenApply(response -> HotelResponses.toPageResult(response, sortByDistance));
+            }
+            return slowQueryLog
+                    .searchAsync("search", params, buildSearchRequest(params, false), HotelListItem.class)
+                    .thenApply(response -> HotelResponses.toPageResult(response, sortByDistance));
+        }));
+    }
+
+
+    // 分页查询的请求，withAggregations为true时同时返回品牌、城市、星级的聚合
+    private SearchRequest buildSearchRequest(RequestParams params, boolean withAggregations) {
         Integer page = params.getPage();
         Integer size = params.getSize();
         String location = params.getLocation();
 
         SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder();
 
-        FunctionScoreQuery functionScoreQuery = buildBasicQuery(params);
+        Query query = HotelQueries.buildQuery(params, searchProperties.isRankFeature());
 
+        // 超过预算的分片不再等待，返回已完成分片的结果
         searchRequestBuilder.index("hotel")
-                .query(q -> q.functionScore(functionScoreQuery))
+                .query(query)
+                .source(HotelQueries.LIST_SOURCE)
                 .from((page - 1) * size)
-                .size(size);
+                .size(size)
+                .timeout(budget.esTimeout("search"))
+                .allowPartialSearchResults(true);
+
+        if (withAggregations) {
+            searchRequestBuilder.aggregations(HotelQueries.FILTER_AGGREGATIONS);
+        }
 
         // 排序
         if (StringUtils.hasLength(location)) {
-            GeoDistanceSort.Builder geoDistanceSortBuilder = new GeoDistanceSort.Builder();
-            geoDistanceSortBuilder.field("location")
-                    .location(l -> l.text(location))
-                    .order(SortOrder.Asc)
-                    .unit(DistanceUnit.Kilometers);
-            searchRequestBuilder.sort(t -> t.geoDistance(geoDistanceSortBuilder.build()));
+            searchRequestBuilder.sort(t -> t.geoDistance(HotelQueries.buildGeoDistanceSort(location)));
         }
 
+        return searchRequestBuilder.build();
+    }
+
+
+    // 游标分页：point-in-time + search_after，翻页深度不影响每页的查询代价
+    private PageResult searchAfter(RequestParams params, SearchCursor cursor) {
+        String keepAlive = searchProperties.getPitKeepAlive();
+
         try {
-            SearchResponse<HotelDoc> response = client.search(searchRequestBuilder.build(), HotelDoc.class);
-            // 解析响应
-            return handleResponse(response);
+            String pitId = cursor == null ? openPointInTime(keepAlive).id() : cursor.getPitId();
+            SearchResponse<HotelListItem> response = slowQueryLog.search("search", params, buildCursorRequest(params, pitId, cursor), HotelListItem.class);
+            return handleCursorResponse(params, response);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            throw cursorExpired(cursor, e);
         }
     }
 
 
-    @Override
-    public Map<String, List<String>> filters(RequestParams params) {
-        FunctionScoreQuery functionScoreQuery = buildBasicQuery(params);
-        Map<String, Aggregation> aggregationMap = buildAggregation();
+    private CompletableFuture<PageResult> searchAfterAsync(RequestParams params, SearchCursor cursor) {
+        String keepAlive = searchProperties.getPitKeepAlive();
 
-        SearchResponse<Void> response = null;
-        try {
-            response = client.search(b -> b
-                            .index("hotel")
-                            .query(q -> q.functionScore(functionScoreQuery))
-                            .size(0)
-                            .aggregations(aggregationMap),
-                    Void.class
-            );
-        } catch (IOException e) {
-            e.printStackTrace();
+        CompletableFuture<String> pitId = cursor == null
+                ? asyncClient.openPointInTime(o -> o.index("hotel").keepAlive(t -> t.time(keepAlive)))
+                .thenApply(OpenPointInTimeResponse::id)
+                : CompletableFuture.completedFuture(cursor.getPitId());
+
+        return pitId
+                .thenCompose(id -> slowQueryLog.searchAsync("search", params, buildCursorRequest(params, id, cursor), HotelListItem.class))
+                .thenApply(response -> handleCursorResponse(params, response))
+                .exceptionally(e -> {
+                    throw cursorExpired(cursor, e);
+                });
+    }
+
+
+    // PIT过期后游标不能再用，前端需要从第一页重新查询
+    private RuntimeException cursorExpired(SearchCursor cursor, Throwable e) {
+        if (cursor != null && SearchCursor.isExpired(e)) {
+            return new BadRequestException("cursor已过期，请从第一页重新查询");
         }
+        return e instanceof RuntimeException ? (RuntimeException) e : new CompletionException(e);
+    }
 
-        Map<String, List<String>> result = new HashMap<>();
 
-        Map<String, Aggregate> aggregations = response.aggregations();
+    private SearchRequest buildCursorRequest(RequestParams params, String pitId, SearchCursor cursor) {
+        Integer size = params.getSize();
+        String location = params.getLocation();
+        String keepAlive = searchProperties.getPitKeepAlive();
 
-        List<String> brandList = getAggByName(aggregations, "brandAgg");
-        result.put("brand", brandList);
-        List<String> cityList = getAggByName(aggregations, "cityAgg");
-        result.put("city", cityList);
-        List<String> starNameList = getAggByName(aggregations, "starNameAgg");
-        result.put("starName", starNameList);
+        SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder();
 
-        return result;
-    }
+        Query query = HotelQueries.buildQuery(params, searchProperties.isRankFeature());
 
+        // 使用PIT时不能再指定索引
+        searchRequestBuilder.pit(p -> p.id(pitId).keepAlive(t -> t.time(keepAlive)))
+                .query(query)
+                .source(HotelQueries.LIST_SOURCE)
+                .size(size)
+                .timeout(budget.esTimeout("search"))
+                .allowPartialSearchResults(true);
 
-    @Override
-    public List<String> getSuggestions(String prefix) {
-        try {
-            return handle.suggest(prefix);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        // 排序：距离或算分，再按id兜底，保证排序值唯一
+        if (StringUtils.hasLength(location)) {
+            searchRequestBuilder.sort(t -> t.geoDistance(HotelQueries.buildGeoDistanceSort(location)));
+        } else {
+            searchRequestBuilder.sort(HotelQueries.SCORE_DESC);
+        }
+        searchRequestBuilder.sort(HotelQueries.ID_ASC);
+
+        if (cursor != null) {
+            searchRequestBuilder.searchAfter(cursor.toFieldValues());
         }
+
+        return searchRequestBuilder.build();
     }
 
 
-    @Override
-    public void insertById(Long id) {
-        Hotel hotel = getById(id);
-        HotelDoc hotelDoc = new HotelDoc(hotel);
+    private PageResult handleCursorResponse(RequestParams params, SearchResponse<HotelListItem> response) {
+        PageResult pageResult = HotelResponses.toPageResult(response, StringUtils.hasLength(params.getLocation()));
 
-        IndexResponse indexResponse = handle.insertDocument("hotel", hotelDoc, hotelDoc.getId().toString());
-        Result result = indexResponse.result();
-        log.info("result：{}", result);
+        List<Hit<HotelListItem>> hits = response.hits().hits();
+        if (hits.size() < params.getSize()) {
+            // 没有下一页了，及时释放PIT
+            closePointInTime(response.pitId());
+        } else {
+            Hit<HotelListItem> last = hits.get(hits.size() - 1);
+            pageResult.setCursor(new SearchCursor(response.pitId(), last.sort()).encode());
+        }
+        return pageResult;
     }
 
 
-    @Override
-    public void deleteById(Long id) {
-        DeleteResponse deleteResponse = handle.deleteDocument("hotel", id.toString());
-        Result result = deleteResponse.result();
-        log.info("result：{}", result);
+    private OpenPointInTimeResponse openPointInTime(String keepAlive) throws IOException {
+        return client.openPointInTime(o -> o
+                .index("hotel")
+                .keepAlive(t -> t.time(keepAlive))
+        );
     }
 
 
-    // 根据聚合名称获取聚合结果
-    private List<String> getAggByName(Map<String, Aggregate> aggregations, String aggName) {
-        List<StringTermsBucket> buckets = aggregations.get(aggName).sterms().buckets().array();
+    private void closePointInTime(String pitId) {
+        // 异步释放，关闭失败也会在keepAlive到期后自动释放
+        asyncClient.closePointInTime(c -> c.id(pitId))
+                .whenComplete((r, e) -> {
+                    if (e != null) {
+                        log.warn("关闭PIT失败：{}", e.getMessage());
+                    }
+                });
+    }
 
-        List<String> keyList = new ArrayList<>();
 
-        for (StringTermsBucket bucket : buckets) {
-            String key = bucket.key().stringValue();
-            keyList.add(key);
+    @Override
+    public Map<String, List<String>> filters(RequestParams params) {
+        params.normalize();
+        if (facetIndex.supports(params)) {
+            // 没有关键字，过滤项由本地位图求交得到
+            return facetIndex.facets(params);
         }
 
-        return keyList;
+        // 相同过滤条件的并发请求共享一次ES查询
+        String key = filtersKey(params);
+        return coalescer.run("filters", key, () -> budget.call("filters", key, () -> {
+            try {
+                SearchResponse<Void> response = slowQueryLog.search("filters", params, buildFiltersRequest(params), Void.class);
+                return HotelResponses.filters(response.aggregations());
+            } catch (IOException e) {
+                log.error("查询过滤项异常：{}", e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }));
     }
 
 
-    private Map<String, Aggregation> buildAggregation() {
-        String[] filterFields = {"brand", "city", "starName"};
-        Map<String, Aggregation> aggregationMap = new HashMap<>();
-        for (String filterField : filterFields) {
-            aggregationMap.put(filterField + "Agg",
-                    new Aggregation.Builder().terms(t -> t.field(filterField).size(100)).build());
+    @Override
+    public CompletableFuture<Map<String, List<String>>> filtersAsync(RequestParams params) {
+        params.normalize();
+        if (facetIndex.supports(params)) {
+            return CompletableFuture.completedFuture(facetIndex.facets(params));
         }
-
-        return aggregationMap;
+        String key = filtersKey(params);
+        return coalescer.runAsync("filters", key, () -> budget.callAsync("filters", key, () -> slowQueryLog
+                .searchAsync("filters", params, buildFiltersRequest(params), Void.class)
+                .thenApply(response -> HotelResponses.filters(response.aggregations()))));
     }
 
 
-    private FunctionScoreQuery buildBasicQuery(RequestParams params) {
-        String key = params.getKey();
-        String city = params.getCity();
-        String brand = params.getBrand();
-        String starName = params.getStarName();
-        Integer maxPrice = params.getMaxPrice();
-        Integer minPrice = params.getMinPrice();
+    private String filtersKey(RequestParams params) {
+        return "filters:" + SearchKeys.filterKey(params);
+    }
 
-        // 1.原始查询，根据相关性算分
-        BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
 
-        // 关键字搜索 Search by "all"
-        Query byAll;
-        if (!StringUtils.hasLength(key)) {
-            byAll = MatchAllQuery.of(m -> m)._toQuery();
-        } else {
-            byAll = MatchQuery.of(m -> m
-                    .field("all")
-                    .query(key)
-            )._toQuery();
-        }
-        boolQueryBuilder.must(byAll);
-
-        // Search by city
-        if (StringUtils.hasLength(city)) {
-            Query byCity = TermQuery.of(m -> m
-                    .field("city")
-                    .value(city)
-            )._toQuery();
-            boolQueryBuilder.filter(byCity);
+    // 只做聚合的请求，结果可以由ES的分片请求缓存缓存
+    private SearchRequest buildFiltersRequest(RequestParams params) {
+        Query query = HotelQueries.buildQuery(params, searchProperties.isRankFeature());
+
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index("hotel")
+                .query(query)
+                .size(0)
+                .aggregations(HotelQueries.FILTER_AGGREGATIONS)
+                .timeout(budget.esTimeout("filters"))
+                .allowPartialSearchResults(true);
+        if (searchProperties.isFacetRequestCache()) {
+            // 相同过滤条件落到相同的副本，重复查询命中已预热的缓存
+            builder.requestCache(true)
+                    .preference(SearchKeys.preference(params));
         }
+        return builder.build();
+    }
 
-        // Search by brand
-        if (StringUtils.hasLength(brand)) {
-            Query byBrand = TermQuery.of(m -> m
-                    .field("brand")
-                    .value(brand)
-            )._toQuery();
-            boolQueryBuilder.filter(byBrand);
-        }
 
-        // Search by starName
-        if (StringUtils.hasLength(starName)) {
-            Query byStarName = TermQuery.of(m -> m
-                    .field("starName")
-                    .value(starName)
-            )._toQuery();
-            boolQueryBuilder.filter(byStarName);
-        }
+    @Override
+    public SearchPageResult searchWithFilters(RequestParams params) {
+        params.normalize();
+        String key = searchCache.key("listWithFilters", params);
+        return searchCache.get("listWithFilters", params, () -> budget.call("search", key, () -> {
+            // 能用本地位图计算过滤项时，不再让ES做聚合
+            boolean localFacets = facetIndex.supports(params);
+            try {
+                SearchResponse<HotelListItem> response = slowQueryLog.search("search", params, buildSearchRequest(params, !localFacets), HotelListItem.class);
+                return handleSearchWithFilters(params, response, localFacets);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+    }
 
-        // Search by price
-        if (maxPrice != null && minPrice != null) {
-            Query byPrice = RangeQuery.of(r -> r
-                    .field("price")
-                    .gte(JsonData.of(minPrice))
-                    .lte(JsonData.of(maxPrice))
-            )._toQuery();
-            boolQueryBuilder.filter(byPrice);
-        }
 
-        Query query = boolQueryBuilder.build()._toQuery();
+    @Override
+    public CompletableFuture<SearchPageResult> searchWithFiltersAsync(RequestParams params) {
+        params.normalize();
+        String key = searchCache.key("listWithFilters", params);
+        return searchCache.getAsync("listWithFilters", params, () -> budget.callAsync("search", key, () -> {
+            boolean localFacets = facetIndex.supports(params);
+            return slowQueryLog.searchAsync("search", params, buildSearchRequest(params, !localFacets), HotelListItem.class)
+                    .thenApply(response -> handleSearchWithFilters(params, response, localFacets));
+        }));
+    }
 
-        // 2. function_score query 算分控制
-        FunctionScoreQuery.Builder functionScoreQueryBuilder = new FunctionScoreQuery.Builder();
 
-        functionScoreQueryBuilder.query(query)
-                .functions(f -> f
-                        .filter(q -> q
-                                .term(t -> t
-                                        .field("isAD")
-                                        .value(true)
-                                )
-                        )
-                        .weight(10.0)
-                )
-                .boostMode(FunctionBoostMode.Multiply);
+    // 命中结果和聚合来自同一个请求，function_score查询只执行一次
+    private SearchPageResult handleSearchWithFilters(RequestParams params, SearchResponse<HotelListItem> response, boolean localFacets) {
+        PageResult pageResult = HotelResponses.toPageResult(response, StringUtils.hasLength(params.getLocation()));
+        Map<String, List<String>> filters = localFacets
+                ? facetIndex.facets(params)
+                : HotelResponses.filters(response.aggregations());
+        return new SearchPageResult(pageResult, filters);
+    }
 
-        return functionScoreQueryBuilder.build();
+    @Override
+    public List<String> getSuggestions(String prefix) {
+        // 只裁剪一次，缓存key和查询使用同一个前缀
+        String trimmed = prefix == null ? "" : prefix.trim();
+        if (searchProperties.isLocalSuggest() && suggestionIndex.isReady()) {
+            // 与ES的completion suggester保持一致，最多返回10条
+            return suggestionIndex.suggest(trimmed, 10);
+        }
+        // 相同前缀的并发请求共享一次ES查询
+        String key = suggestKey(trimmed);
+        return coalescer.run("suggest", key, () -> budget.call("suggest", key, () -> {
+            try {
+                return handle.suggest(trimmed);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }));
     }
 
 
-    private PageResult handleResponse(SearchResponse<HotelDoc> response) {
-        //获取总条数
-        TotalHits total = response.hits().total();
-        long totalValue = total.value();
-
-        List<HotelDoc> hotels = new ArrayList<>();
-        List<Hit<HotelDoc>> hits = response.hits().hits();
-        for (Hit<HotelDoc> hit : hits) {
-            HotelDoc hotelDoc = hit.source();
-            //获取排序值
-            List<FieldValue> sortValues = hit.sort();
-            if (sortValues.size() > 0) {
-                FieldValue fieldValue = sortValues.get(0);
-                Object sortValue = fieldValue._get();
-                hotelDoc.setDistance(sortValue);
-            }
-            hotels.add(hotelDoc);
+    @Override
+    public CompletableFuture<List<String>> getSuggestionsAsync(String prefix) {
+        String trimmed = prefix == null ? "" : prefix.trim();
+        if (searchProperties.isLocalSuggest() && suggestionIndex.isReady()) {
+            return CompletableFuture.completedFuture(suggestionIndex.suggest(trimmed, 10));
         }
+        String key = suggestKey(trimmed);
+        return coalescer.runAsync("suggest", key, () -> budget.callAsync("suggest", key, () -> handle.suggestAsync(trimmed)));
+    }
+
 
-        return new PageResult(totalValue, hotels);
+    private String suggestKey(String prefix) {
+        return "suggest:" + prefix;
     }
 }
@@ -0,0 +1,63 @@
+package com.lee.hotel.slowlog;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.lee.hotel.pojo.RequestParams;
+import lombok.Getter;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 一条慢查询记录
+ */
+@Getter
+public class SlowQuery {
+    /**
+     * 记录时间，毫秒时间戳
+     */
+    private final long timestamp;
+    /**
+     * 操作：search、filters
+     */
+    private final String op;
+    /**
+     * 归一化后的查询条件，相同条件的慢查询可以据此归类
+     */
+    private final String paramsKey;
+    private final RequestParams params;
+    /**
+     * 发送给ES的请求体
+     */
+    @JsonRawValue
+    private final String query;
+    /**
+     * 客户端观察到的耗时
+     */
+    private final long elapsedMillis;
+    /**
+     * ES返回的took
+     */
+    private final long took;
+    private final long hits;
+    /**
+     * 带profile重放的结果，未抽中或重放未完成时为null
+     */
+    @JsonRawValue
+    private volatile String profile;
+
+    public SlowQuery(long timestamp, String op, String paramsKey, RequestParams params, String query,
+                     long elapsedMillis, long took, long hits) {
+        this.timestamp = timestamp;
+        this.op = op;
+        this.paramsKey = paramsKey;
+        this.params = params;
+        this.query = query;
+        this.elapsedMillis = elapsedMillis;
+        this.took = took;
+        this.hits = hits;
+    }
+
+    void setProfile(String profile) {
+        this.profile = profile;
+    }
+}
@@ -0,0 +1,197 @@
+package com.lee.hotel.slowlog;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchTemplateRequest;
+import co.elastic.clients.elasticsearch.core.SearchTemplateResponse;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import com.lee.hotel.cache.SearchKeys;
+import com.lee.hotel.config.SearchCacheProperties;
+import com.lee.hotel.config.SlowQueryProperties;
+import com.lee.hotel.metrics.EsMetrics;
+import com.lee.hotel.pojo.RequestParams;
+import jakarta.json.stream.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * /hotel/list、/hotel/filters的慢查询日志，包括注册为模板的列表查询
+ * 超过阈值的查询记录查询条件、请求体、took和命中数，按比例抽样带profile重放，得到每个分片、每个子查询的耗时
+ */
+@Slf4j
+@Component
+public class SlowQueryLog {
+
+    private final EsMetrics esMetrics;
+
+    private final ElasticsearchAsyncClient asyncClient;
+
+    private final SlowQueryProperties properties;
+
+    /**
+     * 与搜索缓存使用同样的坐标精度生成查询条件的key，同一个缓存key的慢查询归为一类
+     */
+    private final SearchCacheProperties cacheProperties;
+
+    private final SlowQueryRing ring;
+
+    private final AtomicInteger profiling = new AtomicInteger();
+
+    public SlowQueryLog(EsMetrics esMetrics, ElasticsearchAsyncClient asyncClient, SlowQueryProperties properties,
+                        SearchCacheProperties cacheProperties) {
+        this.esMetrics = esMetrics;
+        this.asyncClient = asyncClient;
+        this.properties = properties;
+        this.cacheProperties = cacheProperties;
+        this.ring = new SlowQueryRing(properties.getCapacity());
+    }
+
+    /**
+     * 执行搜索，耗时超过阈值时记录
+     *
+     * @param op
+     * @param params
+     * @param request
+     * @param clazz
+     * @return
+     * @throws IOException
+     */
+    public <T> SearchResponse<T> search(String op, RequestParams params, SearchRequest request, Class<T> clazz) throws IOException {
+        long start = System.nanoTime();
+        SearchResponse<T> response = esMetrics.record(op, params, c -> c.search(request, clazz), c -> c.search(request, clazz));
+        check(op, params, request, request, response.hits(), response.took(), start);
+        return response;
+    }
+
+    public <T> CompletableFuture<SearchResponse<T>> searchAsync(String op, RequestParams params, SearchRequest request, Class<T> clazz) {
+        long start = System.nanoTime();
+        return esMetrics.recordAsync(op, params, c -> c.search(request, clazz))
+                .whenComplete((response, e) -> {
+                    if (e == null) {
+                        check(op, params, request, request, response.hits(), response.took(), start);
+                    }
+                });
+    }
+
+    /**
+     * 执行模板搜索，耗时超过阈值时记录模板id和参数，不做profile重放
+     *
+     * @param op
+     * @param params
+     * @param request
+     * @param clazz
+     * @return
+     * @throws IOException
+     */
+    public <T> SearchTemplateResponse<T> searchTemplate(String op, RequestParams params, SearchTemplateRequest request, Class<T> clazz) throws IOException {
+        long start = System.nanoTime();
+        SearchTemplateResponse<T> response = esMetrics.record(op, params, c -> c.searchTemplate(request, clazz), c -> c.searchTemplate(request, clazz));
+        check(op, params, request, null, response.hits(), response.took(), start);
+        return response;
+    }
+
+    public <T> CompletableFuture<SearchTemplateResponse<T>> searchTemplateAsync(String op, RequestParams params, SearchTemplateRequest request, Class<T> clazz) {
+        long start = System.nanoTime();
+        return esMetrics.recordAsync(op, params, c -> c.searchTemplate(request, clazz))
+                .whenComplete((response, e) -> {
+                    if (e == null) {
+                        check(op, params, request, null, response.hits(), response.took(), start);
+                    }
+                });
+    }
+
+    public List<SlowQuery> list() {
+        return ring.snapshot();
+    }
+
+    public long count() {
+        return ring.count();
+    }
+
+    public void clear() {
+        ring.clear();
+    }
+
+    /**
+     * @param request        记录的请求体
+     * @param profileRequest 用于profile重放的请求，为null时不重放
+     */
+    private void check(String op, RequestParams params, JsonpSerializable request, SearchRequest profileRequest,
+                       HitsMetadata<?> hitsMetadata, long took, long start) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!properties.isEnabled() || elapsedMillis < properties.getThreshold().toMillis()) {
+            return;
+        }
+        try {
+            String query = toJson(request);
+            // 拷贝一份查询条件，调用方之后修改不影响记录
+            RequestParams copy = new RequestParams();
+            BeanUtils.copyProperties(params, copy);
+            long hits = hitsMetadata.total() == null ? hitsMetadata.hits().size() : hitsMetadata.total().value();
+            SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), op, SearchKeys.searchKey(params, cacheProperties.getLocationScale()), copy,
+                    query, elapsedMillis, took, hits);
+            ring.add(slowQuery);
+            log.warn("慢查询：{} {}ms took={}ms hits={} {}", op, elapsedMillis, took, hits, slowQuery.getParamsKey());
+
+            if (profileRequest != null && shouldProfile()) {
+                profile(profileRequest, query, slowQuery);
+            }
+        } catch (RuntimeException e) {
+            // 记录慢查询失败不影响查询本身
+            log.warn("记录慢查询失败：{}", e.getMessage());
+        }
+    }
+
+    private boolean shouldProfile() {
+        double rate = properties.getProfileSampleRate();
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * 带profile重放一次，结果写回记录
+     */
+    private void profile(SearchRequest original, String query, SlowQuery slowQuery) {
+        if (profiling.incrementAndGet() > properties.getMaxConcurrentProfiles()) {
+            profiling.decrementAndGet();
+            return;
+        }
+        SearchRequest.Builder builder = new SearchRequest.Builder().withJson(new StringReader(query)).profile(true);
+        if (original.pit() == null) {
+            builder.index(original.index());
+        }
+        asyncClient.search(builder.build(), Void.class)
+                .whenComplete((response, e) -> {
+                    profiling.decrementAndGet();
+                    if (e != null) {
+                        log.warn("慢查询profile重放失败：{}", e.getMessage());
+                    } else if (response.profile() != null) {
+                        slowQuery.setProfile(toJson(response.profile()));
+                    }
+                });
+    }
+
+    private String toJson(JsonpSerializable value) {
+        JsonpMapper mapper = asyncClient._transport().jsonpMapper();
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(writer);
+        value.serialize(generator, mapper);
+        generator.close();
+        return writer.toString();
+    }
+}
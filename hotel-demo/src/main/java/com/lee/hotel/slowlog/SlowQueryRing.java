@@ -0,0 +1,58 @@
+package com.lee.hotel.slowlog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 定长环形缓冲区，写满后覆盖最早的记录
+ * 写入只有一次getAndIncrement和一次数组写，不加锁，请求线程记录慢查询不会互相阻塞
+ */
+public class SlowQueryRing {
+
+    private final AtomicReferenceArray<SlowQuery> slots;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    public void add(SlowQuery query) {
+        int index = (int) (sequence.getAndIncrement() % slots.length());
+        slots.set(index, query);
+    }
+
+    /**
+     * 当前保留的记录，按时间倒序
+     */
+    public List<SlowQuery> snapshot() {
+        List<SlowQuery> list = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SlowQuery query = slots.get(i);
+            if (query != null) {
+                list.add(query);
+            }
+        }
+        list.sort(Comparator.comparingLong(SlowQuery::getTimestamp).reversed());
+        return list;
+    }
+
+    /**
+     * 累计记录过的慢查询数，包括已被覆盖的
+     */
+    public long count() {
+        return sequence.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.lee.hotel.suggest;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.event.ReplayBuffer;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 进程内的自动补全索引
+ * 启动时从tb_hotel加载品牌和商圈，之后由每个实例各自的广播队列收到全部酒店变更增量更新
+ * 加载期间到达的变更先缓存，加载完成后按顺序重放，不会被加载时读到的旧数据覆盖
+ */
+@Slf4j
+@Component
+public class HotelSuggestionIndex {
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    private final SuggestionTrie trie = new SuggestionTrie();
+
+    /**
+     * 酒店id -> 该酒店贡献的补全值，用于更新和删除时撤销旧值
+     */
+    private final Map<Long, List<String>> suggestionsById = new ConcurrentHashMap<>();
+
+    private final ReplayBuffer<HotelIndexedEvent> buffer = new ReplayBuffer<>(this::apply);
+
+    private volatile boolean ready = false;
+
+    /**
+     * 启动完成后全量加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        buffer.start();
+        try {
+            List<Hotel> hotels = hotelMapper.selectList(new QueryWrapper<Hotel>().select("id", "brand", "business"));
+            for (Hotel hotel : hotels) {
+                if (hotel.getBusiness() != null) {
+                    put(hotel.getId(), HotelDoc.buildSuggestion(hotel.getBrand(), hotel.getBusiness()));
+                }
+            }
+            ready = true;
+            int replayed = buffer.replay();
+            log.info("自动补全索引加载完成，酒店数：{}，重放变更数：{}", hotels.size(), replayed);
+        } catch (Exception e) {
+            // 加载失败时继续使用ES的completion suggester
+            buffer.discard();
+            log.error("自动补全索引加载失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 收到酒店变更，加载期间先缓存
+     *
+     * @param event
+     */
+    public void onHotelChanged(HotelIndexedEvent event) {
+        buffer.offer(event);
+    }
+
+    private void apply(HotelIndexedEvent event) {
+        // 补全值只来自品牌和商圈，其他字段的修改不需要重新计算拼音
+        if (event.isDeleted()) {
+            put(event.getId(), Collections.emptyList());
+        } else if (event.isChanged("brand", "business")) {
+            put(event.getId(), event.getHotelDoc().getSuggestion());
+        }
+    }
+
+    private synchronized void put(Long id, List<String> suggestion) {
+        List<String> old = suggestion.isEmpty() ? suggestionsById.remove(id) : suggestionsById.put(id, suggestion);
+        if (old != null) {
+            for (String text : old) {
+                trie.remove(text);
+            }
+        }
+        for (String text : suggestion) {
+            trie.add(text);
+        }
+    }
+
+    /**
+     * 前缀查询
+     *
+     * @param prefix
+     * @param size
+     * @return
+     */
+    public List<String> suggest(String prefix, int size) {
+        return trie.suggest(prefix, size);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+}
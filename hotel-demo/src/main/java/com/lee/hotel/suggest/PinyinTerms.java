@@ -0,0 +1,91 @@
+package com.lee.hotel.suggest;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 在本地生成与hotel-index.json中completion_analyzer一致的词项：
+ * keyword分词器 + py过滤器（keep_original、keep_joined_full_pinyin、keep_first_letter）
+ * 例如 "如家" -> ["如家", "rujia", "rj"]
+ */
+public class PinyinTerms {
+
+    /**
+     * 对应py过滤器的limit_first_letter_length
+     */
+    private static final int FIRST_LETTER_LIMIT = 16;
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinTerms() {
+    }
+
+    /**
+     * 生成一个补全值对应的全部词项，已去重
+     *
+     * @param text
+     * @return
+     */
+    public static Set<String> of(String text) {
+        Set<String> terms = new LinkedHashSet<>(4);
+        if (text == null || text.trim().isEmpty()) {
+            return terms;
+        }
+        String original = text.trim().toLowerCase(Locale.ROOT);
+
+        StringBuilder joined = new StringBuilder(original.length() * 4);
+        StringBuilder firstLetter = new StringBuilder(original.length());
+        for (int i = 0; i < original.length(); i++) {
+            char c = original.charAt(i);
+            String pinyin = toPinyin(c);
+            if (pinyin != null) {
+                joined.append(pinyin);
+                firstLetter.append(pinyin.charAt(0));
+            } else if (Character.isLetterOrDigit(c)) {
+                // 非中文字符原样保留
+                joined.append(c);
+                firstLetter.append(c);
+            }
+        }
+
+        terms.add(original);
+        if (joined.length() > 0) {
+            terms.add(joined.toString());
+        }
+        if (firstLetter.length() > 0) {
+            terms.add(firstLetter.length() > FIRST_LETTER_LIMIT
+                    ? firstLetter.substring(0, FIRST_LETTER_LIMIT)
+                    : firstLetter.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * 多音字取第一个读音，非中文返回null
+     */
+    private static String toPinyin(char c) {
+        try {
+            String[] arr = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return arr == null || arr.length == 0 ? null : arr[0];
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.lee.hotel.suggest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 自动补全前缀树
+ * 每个补全值按拼音词项（原文、全拼、首字母）挂到树上，前缀命中任意一个词项即返回原文
+ * 同一个补全值可能来自多家酒店，用引用计数支持增量删除
+ */
+public class SuggestionTrie {
+
+    private final Node root = new Node();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加一个补全值
+     *
+     * @param text
+     */
+    public void add(String text) {
+        Set<String> terms = PinyinTerms.of(text);
+        lock.writeLock().lock();
+        try {
+            for (String term : terms) {
+                Node node = root;
+                for (int i = 0; i < term.length(); i++) {
+                    node = node.children.computeIfAbsent(term.charAt(i), c -> new Node());
+                }
+                node.outputs.merge(text, 1, Integer::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除一个补全值，引用计数归零时从树上删除
+     *
+     * @param text
+     */
+    public void remove(String text) {
+        Set<String> terms = PinyinTerms.of(text);
+        lock.writeLock().lock();
+        try {
+            for (String term : terms) {
+                remove(root, term, 0, text);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean remove(Node node, String term, int depth, String text) {
+        if (depth == term.length()) {
+            node.outputs.computeIfPresent(text, (k, count) -> count > 1 ? count - 1 : null);
+        } else {
+            Node child = node.children.get(term.charAt(depth));
+            if (child != null && remove(child, term, depth + 1, text)) {
+                node.children.remove(term.charAt(depth));
+            }
+        }
+        // 返回当前节点是否可以被删除
+        return node.outputs.isEmpty() && node.children.isEmpty();
+    }
+
+    /**
+     * 前缀查询，结果去重，短词项优先
+     *
+     * @param prefix
+     * @param size
+     * @return
+     */
+    public List<String> suggest(String prefix, int size) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        Set<String> result = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node != null) {
+                collect(node, result, size);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 广度优先收集，保证较短的词项先返回
+     */
+    private void collect(Node start, Set<String> result, int size) {
+        List<Node> level = new ArrayList<>();
+        level.add(start);
+        while (!level.isEmpty()) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : level) {
+                for (String output : node.outputs.keySet()) {
+                    result.add(output);
+                    if (result.size() >= size) {
+                        return;
+                    }
+                }
+                next.addAll(node.children.values());
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.outputs.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        /**
+         * 在此结束的词项对应的原文 -> 引用计数
+         */
+        private final Map<String, Integer> outputs = new TreeMap<>();
+    }
+}
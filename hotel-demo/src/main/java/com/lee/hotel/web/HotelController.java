@@ -1,41 +1,67 @@
 package com.lee.hotel.web;
 
+import com.lee.hotel.config.HotelSearchProperties;
 import com.lee.hotel.pojo.PageResult;
 import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.pojo.SearchPageResult;
 import com.lee.hotel.service.IHotelService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author LiJing
  * @version 1.0
+ * <p>
+ * 返回CompletableFuture时Spring MVC以异步请求处理，ES响应到达后再写回结果
  */
 @RestController
 @RequestMapping("/hotel")
 public class HotelController {
     @Autowired
     private IHotelService hotelService;
+    @Autowired
+    private HotelSearchProperties searchProperties;
 
     // 搜索酒店数据
     @PostMapping("/list")
-    public PageResult search(@RequestBody RequestParams params) {
-        return hotelService.search(params);
+    public CompletableFuture<PageResult> search(@RequestBody RequestParams params) {
+        if (searchProperties.isAsync()) {
+            return hotelService.searchAsync(params);
+        }
+        return CompletableFuture.completedFuture(hotelService.search(params));
     }
 
 
     // 获取品牌、城市、星级字段的聚合结果
     @PostMapping("/filters")
-    public Map<String, List<String>> getFilters(@RequestBody RequestParams params) {
-        return hotelService.filters(params);
+    public CompletableFuture<Map<String, List<String>>> getFilters(@RequestBody RequestParams params) {
+        if (searchProperties.isAsync()) {
+            return hotelService.filtersAsync(params);
+        }
+        return CompletableFuture.completedFuture(hotelService.filters(params));
+    }
+
+
+    // 搜索酒店数据，同时返回品牌、城市、星级字段的聚合结果
+    @PostMapping("/listWithFilters")
+    public CompletableFuture<SearchPageResult> searchWithFilters(@RequestBody RequestParams params) {
+        if (searchProperties.isAsync()) {
+            return hotelService.searchWithFiltersAsync(params);
+        }
+        return CompletableFuture.completedFuture(hotelService.searchWithFilters(params));
     }
 
 
     // 实现搜索框自动补全
     @GetMapping("suggestion")
-    public List<String> getSuggestions(@RequestParam("key") String prefix) {
-        return hotelService.getSuggestions(prefix);
+    public CompletableFuture<List<String>> getSuggestions(@RequestParam("key") String prefix) {
+        if (searchProperties.isAsync()) {
+            return hotelService.getSuggestionsAsync(prefix);
+        }
+        return CompletableFuture.completedFuture(hotelService.getSuggestions(prefix));
     }
 }
@@ -0,0 +1,60 @@
+package com.lee.hotel.web;
+
+import com.lee.hotel.index.HotelReindexer;
+import com.lee.hotel.index.ReindexReport;
+import com.lee.hotel.metrics.RequestCacheMonitor;
+import com.lee.hotel.metrics.RequestCacheSnapshot;
+import com.lee.hotel.mq.IndexRetryRouter;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 索引运维接口
+ */
+@RestController
+@RequestMapping("/admin/index")
+public class IndexAdminController {
+    @Autowired
+    private HotelReindexer reindexer;
+    @Autowired
+    private RequestCacheMonitor requestCacheMonitor;
+    @Autowired
+    private IndexRetryRouter retryRouter;
+
+    // 从数据库全量重建索引并切换别名
+    @PostMapping("/reindex")
+    public ReindexReport reindex() {
+        return reindexer.reindex();
+    }
+
+    // 把ES中的广告标记导入数据库，之后重建索引，再开启hotel.search.rank-feature
+    @PostMapping("/ad-flags")
+    public int importAdFlags() {
+        return reindexer.importAdFlags();
+    }
+
+    // 分片请求缓存的命中、未命中、淘汰次数和占用内存
+    @GetMapping("/request-cache")
+    public RequestCacheSnapshot requestCache() {
+        return requestCacheMonitor.stats();
+    }
+
+    // parking队列中等待重放的消息数
+    @GetMapping("/parking")
+    public int parked() {
+        return retryRouter.parked();
+    }
+
+    // 排查修复后把parking队列中的消息发回原队列
+    @PostMapping("/parking/replay")
+    public int replay(@RequestParam(value = "limit", defaultValue = "1000") Integer limit) {
+        return retryRouter.replay(limit);
+    }
+}
@@ -0,0 +1,36 @@
+package com.lee.hotel.web;
+
+import com.lee.hotel.slowlog.SlowQuery;
+import com.lee.hotel.slowlog.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 慢查询日志接口
+ */
+@RestController
+@RequestMapping("/admin/slow-queries")
+public class SlowQueryController {
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    // 最近的慢查询，按时间倒序
+    @GetMapping
+    public List<SlowQuery> list() {
+        return slowQueryLog.list();
+    }
+
+    // 清空慢查询日志
+    @DeleteMapping
+    public void clear() {
+        slowQueryLog.clear();
+    }
+}
@@ -0,0 +1,187 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.lee.hotel.handle.ElasticsearchHandle;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.query.HotelQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 广告加权的两种实现：查询时的function_score和索引时的rank_feature
+ * 在临时索引中比较排序结果和耗时
+ */
+@Slf4j
+@SpringBootTest
+public class AdRankTest {
+    @Autowired
+    private ElasticsearchClient client;
+    @Autowired
+    private ElasticsearchHandle handle;
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    private static final String INDEX = "hotel_ad_rank_test";
+
+    private static final int ROUNDS = 200;
+
+    /**
+     * 有关键字时比较排序的条数
+     */
+    private static final int TOP_N = 20;
+
+    /**
+     * 有关键字时两种方式前TOP_N条排序的Kendall相关系数下限
+     */
+    private static final double MIN_KENDALL_TAU = 0.6;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        if (handle.hasIndex(INDEX)) {
+            handle.deleteIndex(INDEX);
+        }
+        handle.createIndex(INDEX, "hotel-index.json");
+        List<Hotel> hotels = hotelMapper.selectPageAfter(0, Long.MAX_VALUE, 1000);
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (int i = 0; i < hotels.size(); i++) {
+            HotelDoc hotelDoc = new HotelDoc(hotels.get(i));
+            // 每7家酒店一个广告
+            hotelDoc.setIsAD(i % 7 == 0);
+            br.operations(op -> op.index(idx -> idx.index(INDEX).id(hotelDoc.getId().toString()).document(hotelDoc)));
+        }
+        client.bulk(br.refresh(Refresh.True).build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        handle.deleteIndex(INDEX);
+    }
+
+    // 没有关键字时两种方式的算分完全相同：广告10分，其他1分
+    @Test
+    void testEquivalentWithoutKeyword() throws IOException {
+        RequestParams all = new RequestParams();
+        RequestParams city = new RequestParams();
+        city.setCity("上海");
+        RequestParams price = new RequestParams();
+        price.setMinPrice(100);
+        price.setMaxPrice(500);
+
+        for (RequestParams params : new RequestParams[]{all, city, price}) {
+            List<Hit<HotelDoc>> functionScore = search(HotelQueries.buildQuery(params, false), 50).hits().hits();
+            List<Hit<HotelDoc>> rankFeature = search(HotelQueries.buildQuery(params, true), 50).hits().hits();
+            assertEquals(ids(functionScore), ids(rankFeature));
+            for (int i = 0; i < functionScore.size(); i++) {
+                assertEquals(functionScore.get(i).score(), rankFeature.get(i).score(), 1e-4);
+            }
+        }
+    }
+
+    // 有关键字时rank_feature是加分而不是乘分，排序与function_score接近但不完全相同，
+    // 以function_score的前TOP_N条为准，比较它们在rank_feature结果中的先后顺序
+    @Test
+    void testKeywordRankCorrelation() throws IOException {
+        for (String key : new String[]{"如家", "外滩", "希尔顿", "7天"}) {
+            RequestParams params = new RequestParams();
+            params.setKey(key);
+            List<String> functionScore = ids(search(HotelQueries.buildQuery(params, false), TOP_N).hits().hits());
+            // 多取一些，function_score前TOP_N条在rank_feature中靠后时也能找到名次
+            List<String> rankFeature = ids(search(HotelQueries.buildQuery(params, true), TOP_N * 5).hits().hits());
+            double tau = kendallTau(functionScore, rankFeature);
+            log.info("关键字{}：Kendall相关系数{}，function_score {}，rank_feature {}",
+                    key, tau, functionScore, rankFeature.subList(0, Math.min(TOP_N, rankFeature.size())));
+            assertTrue(tau >= MIN_KENDALL_TAU, "关键字" + key + "排序相关系数只有" + tau);
+        }
+    }
+
+    // 耗时对比，打印两种方式的平均took
+    @Test
+    void testLatency() throws IOException {
+        RequestParams params = new RequestParams();
+        params.setKey("酒店");
+        Query functionScore = HotelQueries.buildQuery(params, false);
+        Query rankFeature = HotelQueries.buildQuery(params, true);
+        // 预热
+        for (int i = 0; i < ROUNDS / 4; i++) {
+            search(functionScore, 10);
+            search(rankFeature, 10);
+        }
+        long functionScoreTook = 0;
+        long rankFeatureTook = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            functionScoreTook += search(functionScore, 10).took();
+            rankFeatureTook += search(rankFeature, 10).took();
+        }
+        log.info("{}次查询平均took：function_score {}ms，rank_feature {}ms",
+                ROUNDS, (double) functionScoreTook / ROUNDS, (double) rankFeatureTook / ROUNDS);
+    }
+
+    private SearchResponse<HotelDoc> search(Query query, int size) throws IOException {
+        // 关闭请求缓存，每次都真正执行查询
+        return client.search(s -> s
+                .index(INDEX)
+                .query(query)
+                .size(size)
+                .requestCache(false)
+                .trackTotalHits(t -> t.enabled(false)), HotelDoc.class);
+    }
+
+    /**
+     * expected中每一对酒店在actual中先后顺序相同记为一致，相反记为不一致，不在actual中的排在最后
+     *
+     * @return (一致对数 - 不一致对数) / 总对数
+     */
+    private double kendallTau(List<String> expected, List<String> actual) {
+        int n = expected.size();
+        if (n < 2) {
+            return 1.0;
+        }
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            int rank = actual.indexOf(expected.get(i));
+            ranks[i] = rank < 0 ? actual.size() : rank;
+        }
+        int concordant = 0;
+        int discordant = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (ranks[i] < ranks[j]) {
+                    concordant++;
+                } else if (ranks[i] > ranks[j]) {
+                    discordant++;
+                }
+            }
+        }
+        return (double) (concordant - discordant) / (n * (n - 1) / 2);
+    }
+
+    private List<String> ids(List<Hit<HotelDoc>> hits) {
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Hit<HotelDoc> hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+}
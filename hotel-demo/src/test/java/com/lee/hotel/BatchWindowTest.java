@@ -0,0 +1,60 @@
+package com.lee.hotel;
+
+import com.lee.hotel.index.BatchWindow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class BatchWindowTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    // 攒够一批时立即写入，不等待时间窗口
+    @Test
+    void testFlushBySize() {
+        BatchWindow<Integer> window = new BatchWindow<>("batch-test", 3, Duration.ofMinutes(1), batches::add);
+        for (int i = 1; i <= 7; i++) {
+            window.add(i);
+        }
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6)), batches);
+
+        window.shutdown();
+        assertEquals(Collections.singletonList(7), batches.get(2));
+    }
+
+    // 持续的少量消息：从第一条到达起计时，到期即写入，不会一直等到攒满
+    @Test
+    void testFlushByTime() throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        long[] flushedAt = new long[1];
+        BatchWindow<Integer> window = new BatchWindow<>("batch-test", 1000, Duration.ofMillis(200), batch -> {
+            batches.add(batch);
+            flushedAt[0] = System.nanoTime();
+            flushed.countDown();
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10 && flushed.getCount() > 0; i++) {
+            window.add(i);
+            Thread.sleep(50);
+        }
+        assertTrue(flushed.await(1, TimeUnit.SECONDS));
+        long waited = TimeUnit.NANOSECONDS.toMillis(flushedAt[0] - start);
+        assertTrue(waited >= 200 && waited < 400, "等待了" + waited + "ms");
+        assertTrue(batches.get(0).size() < 10);
+        window.shutdown();
+    }
+}
@@ -0,0 +1,66 @@
+package com.lee.hotel;
+
+import com.lee.hotel.facet.FacetBitmaps;
+import com.lee.hotel.facet.FacetValues;
+import com.lee.hotel.pojo.RequestParams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class FacetBitmapsTest {
+
+    private FacetBitmaps bitmaps;
+
+    @BeforeEach
+    void setUp() {
+        bitmaps = new FacetBitmaps(100);
+        bitmaps.put(1, new FacetValues("如家", "上海", "二钻", 199));
+        bitmaps.put(2, new FacetValues("如家", "北京", "二钻", 250));
+        bitmaps.put(3, new FacetValues("7天酒店", "上海", "二钻", 150));
+        bitmaps.put(4, new FacetValues("希尔顿", "上海", "五钻", 1200));
+        bitmaps.put(5, new FacetValues("如家", "上海", "三钻", 301));
+    }
+
+    // 不带条件：按文档数倒序，相同时按取值升序
+    @Test
+    void testFacets() {
+        Map<String, List<String>> facets = bitmaps.facets(new RequestParams());
+        assertEquals(Arrays.asList("如家", "7天酒店", "希尔顿"), facets.get("brand"));
+        assertEquals(Arrays.asList("上海", "北京"), facets.get("city"));
+        assertEquals(Arrays.asList("二钻", "三钻", "五钻"), facets.get("starName"));
+    }
+
+    // 城市 + 价格条件，价格区间两端按实际价格过滤
+    @Test
+    void testFacetsWithFilters() {
+        RequestParams params = new RequestParams();
+        params.setCity("上海");
+        params.setMinPrice(160);
+        params.setMaxPrice(301);
+
+        Map<String, List<String>> facets = bitmaps.facets(params);
+        assertEquals(Collections.singletonList("如家"), facets.get("brand"));
+        assertEquals(Arrays.asList("三钻", "二钻"), facets.get("starName"));
+    }
+
+    // 更新和删除
+    @Test
+    void testUpdateAndRemove() {
+        bitmaps.put(2, new FacetValues("如家", "上海", "二钻", 250));
+        bitmaps.remove(4);
+
+        Map<String, List<String>> facets = bitmaps.facets(new RequestParams());
+        assertEquals(Collections.singletonList("上海"), facets.get("city"));
+        assertEquals(Arrays.asList("如家", "7天酒店"), facets.get("brand"));
+    }
+}
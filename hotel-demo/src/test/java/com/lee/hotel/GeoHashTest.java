@@ -0,0 +1,47 @@
+package com.lee.hotel;
+
+import com.lee.hotel.nearby.GeoHash;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class GeoHashTest {
+
+    @Test
+    void testEncode() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("wtw3", GeoHash.encode(31.2304, 121.4737, 4));
+    }
+
+    // 格子范围包含编码用的坐标
+    @Test
+    void testBounds() {
+        double lat = 31.282444, lon = 121.476461;
+        double[] bounds = GeoHash.bounds(GeoHash.encode(lat, lon, 6));
+        assertTrue(bounds[0] <= lat && lat <= bounds[1]);
+        assertTrue(bounds[2] <= lon && lon <= bounds[3]);
+    }
+
+    @Test
+    void testDistance() {
+        // 上海人民广场到陆家嘴约2.7公里
+        double d = GeoHash.distanceKm(31.2304, 121.4737, 31.2397, 121.4998);
+        assertEquals(2.67, d, 0.05);
+        assertEquals(0, GeoHash.distanceKm(31.2, 121.5, 31.2, 121.5), 1e-9);
+    }
+
+    @Test
+    void testParseLatLon() {
+        double[] latLon = GeoHash.parseLatLon("31.21, 121.5");
+        assertEquals(31.21, latLon[0], 1e-9);
+        assertEquals(121.5, latLon[1], 1e-9);
+        assertNull(GeoHash.parseLatLon("abc"));
+        assertNull(GeoHash.parseLatLon("121.5, 31.21, 1"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.lee.hotel;
+
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 固定线程数下同步与异步访问ES的吞吐对比，关闭搜索缓存保证每次请求都落到ES
+ */
+@Slf4j
+@SpringBootTest(properties = "hotel.cache.search.enabled=false")
+public class HotelAsyncLoadTest {
+    @Autowired
+    private IHotelService hotelService;
+
+    /**
+     * 模拟Tomcat工作线程数
+     */
+    private static final int THREADS = 8;
+
+    private static final int REQUESTS = 2000;
+
+    /**
+     * 异步模式下同时等待ES响应的最大请求数
+     */
+    private static final int MAX_IN_FLIGHT = 256;
+
+    private static final String[] KEYS = {"如家", "外滩", "希尔顿", "四季", "7天", ""};
+
+    @Test
+    public void testSyncVsAsync() throws InterruptedException {
+        // 预热
+        runSync(200);
+        runAsync(200);
+
+        long syncMillis = runSync(REQUESTS);
+        long asyncMillis = runAsync(REQUESTS);
+
+        log.info("{}个线程，{}次请求：同步{}ms（{} req/s），异步{}ms（{} req/s）",
+                THREADS, REQUESTS,
+                syncMillis, REQUESTS * 1000L / Math.max(syncMillis, 1),
+                asyncMillis, REQUESTS * 1000L / Math.max(asyncMillis, 1));
+    }
+
+    private long runSync(int requests) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicLong failed = new AtomicLong();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < requests; i++) {
+            RequestParams params = params(i);
+            pool.execute(() -> {
+                try {
+                    hotelService.search(params);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        long took = System.currentTimeMillis() - start;
+        log.info("同步：失败{}次", failed.get());
+        return took;
+    }
+
+    private long runAsync(int requests) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicLong failed = new AtomicLong();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < requests; i++) {
+            RequestParams params = params(i);
+            pool.execute(() -> {
+                // 工作线程只负责发出请求，不等待响应
+                inFlight.acquireUninterruptibly();
+                hotelService.searchAsync(params).whenComplete((r, e) -> {
+                    if (e != null) {
+                        failed.incrementAndGet();
+                    }
+                    inFlight.release();
+                    done.countDown();
+                });
+            });
+        }
+        done.await(5, TimeUnit.MINUTES);
+        long took = System.currentTimeMillis() - start;
+        pool.shutdown();
+        log.info("异步：失败{}次", failed.get());
+        return took;
+    }
+
+    private RequestParams params(int i) {
+        RequestParams params = new RequestParams();
+        params.setKey(KEYS[i % KEYS.length]);
+        params.setPage(i % 5 + 1);
+        params.setSize(10);
+        return params;
+    }
+}
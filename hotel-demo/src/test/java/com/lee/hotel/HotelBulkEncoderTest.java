@@ -0,0 +1,125 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.index.HotelBulkEncoder;
+import com.lee.hotel.pojo.Hotel;
+import com.lee.hotel.pojo.HotelDoc;
+import jakarta.json.stream.JsonGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class HotelBulkEncoderTest {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    // 与BulkRequest + HotelDoc + Jackson的输出逐字节一致
+    @Test
+    void testSameAsJackson() {
+        List<Hotel> hotels = Arrays.asList(
+                hotel(38609L, "速8酒店(上海赤峰路店)", "四川北路商业区、江湾、五角场商业区"),
+                hotel(2056105938L, "希尔顿\"酒店\"\\n", "人民广场/南京路步行街/"),
+                hotel(1L, "换行\n制表\t控制\u0001符😀", "、外滩、、陆家嘴、"),
+                hotel(7L, null, "、、"),
+                hotel(-3L, "Ünïcödé ½", "虹桥")
+        );
+        hotels.get(3).setPrice(null);
+        hotels.get(3).setLatitude(null);
+        hotels.get(4).setBrand(null);
+        hotels.get(0).setIsAD(true);
+        hotels.get(1).setIsAD(false);
+
+        HotelBulkEncoder encoder = new HotelBulkEncoder(16);
+        for (Hotel hotel : hotels) {
+            encoder.create("hotel_1", hotel);
+        }
+        assertEquals(hotels.size(), encoder.count());
+        assertEquals(jackson(hotels), new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+
+        // 重用缓冲区
+        encoder.reset();
+        encoder.create("hotel_1", hotels.get(0));
+        assertArrayEquals(jackson(hotels.subList(0, 1)).getBytes(StandardCharsets.UTF_8), encoder.toByteArray());
+    }
+
+    // 重建索引从tb_hotel整行写入，广告酒店的isAD和adRank不能丢
+    @Test
+    void testAdKeptOnReindex() {
+        Hotel ad = hotel(38609L, "速8酒店(上海赤峰路店)", "四川北路商业区、江湾");
+        ad.setIsAD(true);
+        HotelDoc hotelDoc = new HotelDoc(ad);
+        assertTrue(hotelDoc.getIsAD());
+        assertEquals(1.0f, hotelDoc.getAdRank());
+
+        HotelBulkEncoder encoder = new HotelBulkEncoder(16);
+        encoder.create("hotel_1", ad);
+        String body = new String(encoder.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"isAD\":true,\"" + HotelDoc.AD_RANK_FIELD + "\":1.0,"), body);
+        assertEquals(jackson(Collections.singletonList(ad)), body);
+
+        ad.setIsAD(false);
+        assertNull(new HotelDoc(ad).getAdRank());
+        encoder.reset();
+        encoder.create("hotel_1", ad);
+        body = new String(encoder.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(body.contains(HotelDoc.AD_RANK_FIELD), body);
+        assertEquals(jackson(Collections.singletonList(ad)), body);
+    }
+
+    private String jackson(List<Hotel> hotels) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Hotel hotel : hotels) {
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            BulkOperation op = BulkOperation.of(o -> o
+                    .create(c -> c
+                            .index("hotel_1")
+                            .id(hotelDoc.getId().toString())
+                            .document(hotelDoc)
+                    )
+            );
+            write(out, op);
+            write(out, hotelDoc);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void write(ByteArrayOutputStream out, Object value) {
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        mapper.serialize(value, generator);
+        generator.close();
+        out.write('\n');
+    }
+
+    private Hotel hotel(Long id, String name, String business) {
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        hotel.setName(name);
+        hotel.setAddress("广灵二路126号");
+        hotel.setPrice(249);
+        hotel.setScore(35);
+        hotel.setBrand("速8");
+        hotel.setCity("上海");
+        hotel.setStarName("二钻");
+        hotel.setBusiness(business);
+        hotel.setLongitude("121.476461");
+        hotel.setLatitude("31.282444");
+        hotel.setPic("https://m.tuniucdn.com/fb2/t1/G1/M00/3E/40/Cii9EVkyLrKIXo1vAAHgrxo_pUcAALcKQLD688AAeDH564_w200_h200_c1_t0.jpg");
+        return hotel;
+    }
+}
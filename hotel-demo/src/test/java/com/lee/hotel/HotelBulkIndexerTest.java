@@ -0,0 +1,267 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.lee.hotel.event.HotelIndexedEvent;
+import com.lee.hotel.index.BulkIndexReport;
+import com.lee.hotel.index.HotelBulkIndexer;
+import com.lee.hotel.index.HotelReindexer;
+import com.lee.hotel.index.IndexOp;
+import com.lee.hotel.mapper.HotelMapper;
+import com.lee.hotel.metrics.EsMetrics;
+import com.lee.hotel.pojo.Hotel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 用模拟的ES客户端检查批量索引器发出的请求和对结果的处理
+ */
+@ExtendWith(MockitoExtension.class)
+public class HotelBulkIndexerTest {
+
+    @Mock
+    private ElasticsearchClient client;
+    @Mock
+    private HotelMapper hotelMapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private HotelReindexer reindexer;
+    @Mock
+    private EsMetrics esMetrics;
+    @InjectMocks
+    private HotelBulkIndexer bulkIndexer;
+
+    /**
+     * 发出的BulkRequest
+     */
+    private final List<BulkRequest> requests = new ArrayList<>();
+
+    /**
+     * 酒店id -> 依次返回的状态码，没有时返回200
+     */
+    private final Map<String, List<Integer>> statuses = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(esMetrics.record(eq("bulk"), any(EsMetrics.EsCall.class)))
+                .thenAnswer(inv -> ((EsMetrics.EsCall<?>) inv.getArgument(1)).call(client));
+        lenient().when(client.bulk(any(BulkRequest.class))).thenAnswer(inv -> respond(inv.getArgument(0)));
+    }
+
+    // 先修改后删除：只发送删除
+    @Test
+    void testUpsertThenDelete() {
+        BulkIndexReport report = bulkIndexer.index(Arrays.asList(IndexOp.upsert(hotel(1L, 200)), IndexOp.delete(1L)));
+
+        List<BulkOperation> ops = requests.get(0).operations();
+        assertEquals(1, ops.size());
+        assertTrue(ops.get(0).isDelete());
+        assertEquals("received=2, sent=1, succeeded=1, stale=0, failed=0", report.toString());
+    }
+
+    // 先删除后新增：只发送整个文档，顺序按最后一次变更排列
+    @Test
+    void testDeleteThenUpsert() {
+        bulkIndexer.index(Arrays.asList(IndexOp.delete(1L), IndexOp.upsert(hotel(2L, 300)), IndexOp.upsert(hotel(1L, 200))));
+
+        List<BulkOperation> ops = requests.get(0).operations();
+        assertEquals(2, ops.size());
+        assertEquals("2", ops.get(0).index().id());
+        assertTrue(ops.get(1).isIndex());
+        assertEquals("1", ops.get(1).index().id());
+    }
+
+    // 同一家酒店的两次部分修改合并成一个_update请求
+    @Test
+    void testMergePartial() {
+        Hotel hotel = hotel(1L, 200);
+        bulkIndexer.index(Arrays.asList(
+                IndexOp.update(hotel, Collections.singleton("price")),
+                IndexOp.update(hotel, Collections.singleton("score"))));
+
+        List<BulkOperation> ops = requests.get(0).operations();
+        assertEquals(1, ops.size());
+        assertTrue(ops.get(0).isUpdate());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> doc = (Map<String, Object>) ops.get(0).update().action().doc();
+        assertEquals(new LinkedHashSet<>(Arrays.asList("price", "score")), doc.keySet());
+    }
+
+    // 单条失败记录在报告中，只为成功的发布事件
+    @Test
+    void testItemFailure() {
+        statuses.put("2", Collections.singletonList(400));
+        BulkIndexReport report = bulkIndexer.index(Arrays.asList(IndexOp.upsert(hotel(1L, 200)), IndexOp.upsert(hotel(2L, 300))));
+
+        assertTrue(report.hasFailures());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(2L, report.getFailures().get(0).getOp().getId());
+        assertEquals(400, report.getFailures().get(0).getStatus());
+
+        ArgumentCaptor<HotelIndexedEvent> events = ArgumentCaptor.forClass(HotelIndexedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertEquals(1L, events.getValue().getId());
+    }
+
+    // 部分修改遇到文档不存在时，改为写入整个文档
+    @Test
+    void testPartialMissingRetriesFullDocument() {
+        statuses.put("1", Collections.singletonList(404));
+        BulkIndexReport report = bulkIndexer.index(Collections.singletonList(
+                IndexOp.update(hotel(1L, 200), Collections.singleton("price"))));
+
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).operations().get(0).isUpdate());
+        BulkOperation retry = requests.get(1).operations().get(0);
+        assertTrue(retry.isIndex());
+        assertEquals("1", retry.index().id());
+        assertFalse(report.hasFailures());
+        assertEquals("received=1, sent=1, succeeded=1, stale=0, failed=0", report.toString());
+    }
+
+    // 带版本号的写入使用external_gte，ES拒绝的过时变更不算失败，也不发布事件
+    @Test
+    void testStaleVersion() {
+        statuses.put("1", Collections.singletonList(409));
+        BulkIndexReport report = bulkIndexer.index(Arrays.asList(
+                IndexOp.upsert(hotel(1L, 200)).withVersion(100L),
+                IndexOp.delete(2L).withVersion(200L)));
+
+        List<BulkOperation> ops = requests.get(0).operations();
+        assertEquals(100L, ops.get(0).index().version());
+        assertEquals(VersionType.ExternalGte, ops.get(0).index().versionType());
+        assertEquals(200L, ops.get(1).delete().version());
+        assertEquals(VersionType.ExternalGte, ops.get(1).delete().versionType());
+        assertFalse(report.hasFailures());
+        assertEquals("received=2, sent=2, succeeded=1, stale=1, failed=0", report.toString());
+        verify(eventPublisher, times(1)).publishEvent(any(HotelIndexedEvent.class));
+    }
+
+    // 带版本号的部分修改按整个文档写入：_update不支持外部版本号，之后到达的较早的整个文档写入会覆盖它
+    @Test
+    void testVersionedPartialWritesFullDocument() {
+        Hotel hotel = hotel(1L, 200);
+        bulkIndexer.index(Arrays.asList(
+                IndexOp.update(hotel, Collections.singleton("price")).withVersion(100L),
+                IndexOp.update(hotel, Collections.singleton("score")).withVersion(200L)));
+
+        assertEquals(1, requests.size());
+        BulkOperation op = requests.get(0).operations().get(0);
+        assertTrue(op.isIndex());
+        assertEquals(200L, op.index().version());
+        assertEquals(VersionType.ExternalGte, op.index().versionType());
+
+        // 本地缓存仍按变化的字段失效
+        ArgumentCaptor<HotelIndexedEvent> events = ArgumentCaptor.forClass(HotelIndexedEvent.class);
+        verify(eventPublisher).publishEvent(events.capture());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("price", "score")), events.getValue().getChangedFields());
+    }
+
+    // 带版本号的部分修改晚于更新的整个文档写入到达时，被ES拒绝，不覆盖新数据
+    @Test
+    void testStalePartial() {
+        statuses.put("1", Collections.singletonList(409));
+        BulkIndexReport report = bulkIndexer.index(Collections.singletonList(
+                IndexOp.update(hotel(1L, 200), Collections.singleton("price")).withVersion(100L)));
+
+        assertEquals(1, requests.size());
+        assertEquals(100L, requests.get(0).operations().get(0).index().version());
+        assertFalse(report.hasFailures());
+        assertEquals(1, report.getStale());
+    }
+
+    // 没有携带数据的变更查库，数据库里没有时删除文档
+    @Test
+    void testMissingRowDeletes() {
+        lenient().when(hotelMapper.selectBatchIds(anyList())).thenReturn(Collections.singletonList(hotel(1L, 200)));
+        bulkIndexer.index(Arrays.asList(IndexOp.upsert(1L), IndexOp.upsert(2L)));
+
+        List<BulkOperation> ops = requests.get(0).operations();
+        assertTrue(ops.get(0).isIndex());
+        assertTrue(ops.get(1).isDelete());
+        assertEquals("2", ops.get(1).delete().id());
+    }
+
+    private BulkResponse respond(BulkRequest request) {
+        requests.add(request);
+        List<BulkResponseItem> items = new ArrayList<>();
+        boolean errors = false;
+        for (BulkOperation op : request.operations()) {
+            String id;
+            OperationType type;
+            if (op.isDelete()) {
+                id = op.delete().id();
+                type = OperationType.Delete;
+            } else if (op.isUpdate()) {
+                id = op.update().id();
+                type = OperationType.Update;
+            } else {
+                id = op.index().id();
+                type = OperationType.Index;
+            }
+            List<Integer> queue = statuses.get(id);
+            int status = queue == null || queue.isEmpty() ? 200 : queue.get(0);
+            if (queue != null && !queue.isEmpty()) {
+                statuses.put(id, queue.subList(1, queue.size()));
+            }
+            errors |= status >= 300;
+            items.add(BulkResponseItem.of(i -> {
+                i.operationType(type).index("hotel").id(id).status(status);
+                if (status >= 300) {
+                    i.error(e -> e.type("error").reason("status " + status));
+                }
+                return i;
+            }));
+        }
+        boolean hasErrors = errors;
+        return BulkResponse.of(b -> b.items(items).errors(hasErrors).took(1));
+    }
+
+    private Hotel hotel(Long id, int price) {
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        hotel.setName("如家酒店" + id);
+        hotel.setPrice(price);
+        hotel.setScore(40);
+        hotel.setBrand("如家");
+        hotel.setCity("上海");
+        hotel.setStarName("二钻");
+        hotel.setBusiness("外滩");
+        hotel.setLongitude("121.5");
+        hotel.setLatitude("31.2");
+        return hotel;
+    }
+}
@@ -0,0 +1,113 @@
+package com.lee.hotel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.hotel.constants.MqConstants;
+import com.lee.hotel.index.IndexOp;
+import com.lee.hotel.mq.HotelChangeDecoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class HotelChangeDecoderTest {
+
+    private final HotelChangeDecoder decoder = new HotelChangeDecoder(new ObjectMapper());
+
+    // 新格式携带整行数据，直接写入，不再查库
+    @Test
+    void testFatEvent() {
+        IndexOp op = decoder.decode(json(MqConstants.HOTEL_INSERT_QUEUE,
+                "{\"version\":1,\"id\":36934,\"changedAt\":1700000000000,"
+                        + "\"hotel\":{\"id\":36934,\"name\":\"7天连锁酒店\",\"price\":336,\"brand\":\"7天酒店\","
+                        + "\"business\":\"江湾、五角场\",\"latitude\":\"31.290203\",\"longitude\":\"121.500676\"},"
+                        + "\"newField\":\"ignored\"}"));
+        assertEquals(IndexOp.Type.UPSERT, op.getType());
+        assertEquals(36934L, op.getId());
+        assertEquals("7天连锁酒店", op.getHotel().getName());
+        assertEquals(336, op.getHotel().getPrice());
+        assertFalse(op.isPartial());
+    }
+
+    // 带有变化字段的修改只写入这些字段
+    @Test
+    void testChangedFields() {
+        IndexOp op = decoder.decode(json(MqConstants.HOTEL_INSERT_QUEUE,
+                "{\"version\":1,\"id\":36934,\"changedAt\":1700000000000,\"changedFields\":[\"price\"],"
+                        + "\"hotel\":{\"id\":36934,\"name\":\"7天连锁酒店\",\"price\":299}}"));
+        assertTrue(op.isPartial());
+        assertEquals(Collections.singleton("price"), op.getChangedFields());
+        assertEquals(299, op.getHotel().getPrice());
+    }
+
+    // 删除消息按队列区分
+    @Test
+    void testDelete() {
+        IndexOp op = decoder.decode(json(MqConstants.HOTEL_DELETE_QUEUE, "{\"version\":1,\"id\":36934,\"changedAt\":1700000000000}"));
+        assertEquals(IndexOp.Type.DELETE, op.getType());
+        assertEquals(36934L, op.getId());
+        // 变更时间作为外部版本号
+        assertEquals(1700000000000L, op.getVersion());
+    }
+
+    // 广播队列同时收到新增和删除，按RoutingKey区分
+    @Test
+    void testBroadcastDelete() {
+        Message message = json("hotel.broadcast.test", "{\"version\":1,\"id\":36934,\"changedAt\":1700000000000}");
+        message.getMessageProperties().setReceivedRoutingKey(MqConstants.HOTEL_DELETE_KEY);
+        assertEquals(IndexOp.Type.DELETE, decoder.decode(message).getType());
+
+        message = json("hotel.broadcast.test", "{\"version\":1,\"id\":36934,\"hotel\":{\"id\":36934}}");
+        message.getMessageProperties().setReceivedRoutingKey(MqConstants.HOTEL_INSERT_KEY);
+        assertEquals(IndexOp.Type.UPSERT, decoder.decode(message).getType());
+    }
+
+    // 不认识的版本按id查库
+    @Test
+    void testNewerVersion() {
+        IndexOp op = decoder.decode(json(MqConstants.HOTEL_INSERT_QUEUE,
+                "{\"version\":2,\"id\":36934,\"hotel\":{\"id\":36934,\"name\":\"7天连锁酒店\"}}"));
+        assertEquals(IndexOp.Type.UPSERT, op.getType());
+        assertNull(op.getHotel());
+    }
+
+    // 旧格式：Java序列化的Long
+    @Test
+    void testLegacyId() {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(MqConstants.HOTEL_INSERT_QUEUE);
+        Message message = new SimpleMessageConverter().toMessage(36934L, properties);
+
+        IndexOp op = decoder.decode(message);
+        assertEquals(IndexOp.Type.UPSERT, op.getType());
+        assertEquals(36934L, op.getId());
+        assertNull(op.getHotel());
+        assertEquals(0L, op.getVersion());
+    }
+
+    @Test
+    void testMalformed() {
+        assertThrows(MessageConversionException.class, () -> decoder.decode(json(MqConstants.HOTEL_INSERT_QUEUE, "{\"version\":")));
+        assertThrows(MessageConversionException.class, () -> decoder.decode(json(MqConstants.HOTEL_INSERT_QUEUE, "{\"version\":1}")));
+    }
+
+    private Message json(String queue, String body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setConsumerQueue(queue);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
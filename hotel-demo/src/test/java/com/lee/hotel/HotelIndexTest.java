@@ -2,6 +2,8 @@ package com.lee.hotel;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import com.lee.hotel.handle.ElasticsearchHandle;
+import com.lee.hotel.index.HotelReindexer;
+import com.lee.hotel.index.ReindexReport;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,8 @@ public class HotelIndexTest {
     private ElasticsearchClient client;
     @Autowired
     private ElasticsearchHandle handle;
+    @Autowired
+    private HotelReindexer reindexer;
 
     @Test
     public void testClient() {
@@ -59,4 +63,11 @@ public class HotelIndexTest {
         }
     }
 
+    //全量重建索引并切换别名
+    @Test
+    public void testReindex() {
+        ReindexReport report = reindexer.reindex();
+        log.info("重建结果：{}", report);
+    }
+
 }
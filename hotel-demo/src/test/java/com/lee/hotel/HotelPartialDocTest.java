@@ -0,0 +1,77 @@
+package com.lee.hotel;
+
+import com.lee.hotel.index.HotelPartialDoc;
+import com.lee.hotel.index.IndexOp;
+import com.lee.hotel.pojo.Hotel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class HotelPartialDocTest {
+
+    // 只改价格时部分文档只有price，不重新生成自动补全字段
+    @Test
+    void testPriceOnly() {
+        Map<String, Object> doc = HotelPartialDoc.build(hotel(), Collections.singleton("price"));
+        assertEquals(Collections.singletonMap("price", 249), doc);
+    }
+
+    // 商圈变化时重新生成自动补全字段，经纬度变化时重新拼接坐标
+    @Test
+    void testDerivedFields() {
+        Map<String, Object> doc = HotelPartialDoc.build(hotel(), new LinkedHashSet<>(Arrays.asList("business", "latitude")));
+        assertEquals("四川北路商业区、江湾", doc.get("business"));
+        assertEquals(Arrays.asList("速8", "四川北路商业区", "江湾"), doc.get("suggestion"));
+        assertEquals("31.282444, 121.476461", doc.get("location"));
+        assertEquals(3, doc.size());
+    }
+
+    // 不认识的字段按整个文档写入
+    @Test
+    void testUnknownField() {
+        assertNull(HotelPartialDoc.build(hotel(), Collections.singleton("isAD")));
+    }
+
+    // 同一批里两次部分修改合并字段，部分修改跟在删除或整行写入之后改为整行写入
+    @Test
+    void testMerge() {
+        Hotel hotel = hotel();
+        IndexOp price = IndexOp.update(hotel, Collections.singleton("price"));
+        IndexOp score = IndexOp.update(hotel, Collections.singleton("score"));
+
+        IndexOp merged = IndexOp.merge(price, score);
+        assertTrue(merged.isPartial());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("price", "score")), merged.getChangedFields());
+
+        assertFalse(IndexOp.merge(IndexOp.delete(hotel.getId()), price).isPartial());
+        assertFalse(IndexOp.merge(IndexOp.upsert(hotel.getId()), price).isPartial());
+        assertFalse(IndexOp.merge(price, IndexOp.upsert(hotel)).isPartial());
+        assertEquals(IndexOp.Type.DELETE, IndexOp.merge(price, IndexOp.delete(hotel.getId())).getType());
+    }
+
+    private Hotel hotel() {
+        Hotel hotel = new Hotel();
+        hotel.setId(38609L);
+        hotel.setName("速8酒店(上海赤峰路店)");
+        hotel.setPrice(249);
+        hotel.setScore(35);
+        hotel.setBrand("速8");
+        hotel.setCity("上海");
+        hotel.setBusiness("四川北路商业区、江湾");
+        hotel.setLongitude("121.476461");
+        hotel.setLatitude("31.282444");
+        return hotel;
+    }
+}
@@ -0,0 +1,86 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreQuery;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.lee.hotel.pojo.HotelDoc;
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.query.HotelQueries;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class HotelQueriesTest {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    // 没有关键字和过滤条件：match_all 加广告加权
+    @Test
+    void testMatchAll() {
+        FunctionScoreQuery query = HotelQueries.buildBasicQuery(new RequestParams());
+        assertEquals("{\"boost_mode\":\"multiply\",\"functions\":[{\"filter\":{\"term\":{\"isAD\":{\"value\":true}}},\"weight\":10.0}],"
+                + "\"query\":{\"bool\":{\"must\":[{\"match_all\":{}}]}}}", toJson(query));
+        assertSame(HotelQueries.MATCH_ALL, query.query().bool().must().get(0));
+        assertSame(HotelQueries.AD_BOOST, query.functions().get(0));
+    }
+
+    // 关键字、城市、品牌、价格：与原先逐个构建的查询结构一致
+    @Test
+    void testFilters() {
+        RequestParams params = new RequestParams();
+        params.setKey("外滩");
+        params.setCity("上海");
+        params.setBrand("如家");
+        params.setMinPrice(100);
+        params.setMaxPrice(300);
+        FunctionScoreQuery query = HotelQueries.buildBasicQuery(params);
+        assertEquals("{\"boost_mode\":\"multiply\",\"functions\":[{\"filter\":{\"term\":{\"isAD\":{\"value\":true}}},\"weight\":10.0}],"
+                + "\"query\":{\"bool\":{\"filter\":[{\"term\":{\"city\":{\"value\":\"上海\"}}},{\"term\":{\"brand\":{\"value\":\"如家\"}}},"
+                + "{\"range\":{\"price\":{\"gte\":100,\"lte\":300}}}],\"must\":[{\"match\":{\"all\":{\"query\":\"外滩\"}}}]}}}", toJson(query));
+
+        // 相同取值的term过滤条件复用同一个对象
+        FunctionScoreQuery again = HotelQueries.buildBasicQuery(params);
+        assertSame(query.query().bool().filter().get(0), again.query().bool().filter().get(0));
+    }
+
+    // rank_feature模式：原始查询作为must，广告特征作为should，加权 AD_WEIGHT - 1
+    @Test
+    void testRankFeature() {
+        RequestParams params = new RequestParams();
+        params.setCity("上海");
+        BoolQuery query = HotelQueries.buildRankFeatureQuery(params);
+        assertEquals("{\"must\":[{\"bool\":{\"filter\":[{\"term\":{\"city\":{\"value\":\"上海\"}}}],\"must\":[{\"match_all\":{}}]}}],"
+                + "\"should\":[{\"rank_feature\":{\"boost\":9.0,\"field\":\"adRank\",\"linear\":{}}}]}", toJson(query));
+        assertSame(HotelQueries.AD_RANK, query.should().get(0));
+
+        // 两种模式的原始查询相同
+        FunctionScoreQuery functionScore = HotelQueries.buildBasicQuery(params);
+        assertEquals(toJson(functionScore.query()), toJson(query.must().get(0)));
+    }
+
+    // 只有广告酒店写入adRank
+    @Test
+    void testAdRank() {
+        HotelDoc hotelDoc = new HotelDoc();
+        assertNull(hotelDoc.getAdRank());
+        hotelDoc.setIsAD(true);
+        assertEquals(1.0f, hotelDoc.getAdRank());
+        hotelDoc.setIsAD(false);
+        assertNull(hotelDoc.getAdRank());
+    }
+
+    private String toJson(JsonpSerializable query) {
+        StringBuilder sb = new StringBuilder();
+        JsonpUtils.toString(query, mapper, sb);
+        return sb.toString();
+    }
+}
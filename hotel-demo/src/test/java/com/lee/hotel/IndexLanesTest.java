@@ -0,0 +1,91 @@
+package com.lee.hotel;
+
+import com.lee.hotel.index.IndexLanes;
+import com.lee.hotel.index.IndexOp;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class IndexLanesTest {
+
+    // 同一个id总是落到同一条道，且在各道之间分布均匀
+    @Test
+    void testLane() {
+        int[] counts = new int[8];
+        for (long id = 0; id < 80000; id++) {
+            int lane = IndexLanes.lane(id, 8);
+            assertEquals(lane, IndexLanes.lane(id, 8));
+            counts[lane]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9000 && count < 11000, "分布不均：" + count);
+        }
+    }
+
+    // 道数加一时只有约1/(n+1)的id换道，且都换到新增的道
+    @Test
+    void testLaneConsistent() {
+        int moved = 0;
+        for (long id = 0; id < 80000; id++) {
+            int before = IndexLanes.lane(id, 8);
+            int after = IndexLanes.lane(id, 9);
+            if (before != after) {
+                assertEquals(8, after);
+                moved++;
+            }
+        }
+        assertTrue(moved > 7000 && moved < 11000, "换道数：" + moved);
+    }
+
+    // 并行写入时同一家酒店的变更保持提交顺序，每条变更都被确认
+    @Test
+    void testOrderPerHotel() throws Exception {
+        int hotels = 50;
+        int rounds = 40;
+        Map<Long, List<IndexOp>> written = new ConcurrentHashMap<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch acked = new CountDownLatch(hotels * rounds);
+        IndexLanes<IndexOp> lanes = new IndexLanes<>("test-lane", 4, 16, 10, Duration.ofMillis(1), ops -> {
+            // 偶尔失败，重试时不能打乱顺序
+            if (failures.incrementAndGet() % 7 == 0) {
+                throw new IllegalStateException("ES不可用");
+            }
+            for (IndexOp op : ops) {
+                written.computeIfAbsent(op.getId(), k -> Collections.synchronizedList(new ArrayList<>())).add(op);
+                acked.countDown();
+            }
+        });
+        try {
+            for (int r = 0; r < rounds; r++) {
+                for (long id = 0; id < hotels; id++) {
+                    IndexOp op = r == rounds - 1 ? IndexOp.delete(id) : IndexOp.upsert(id);
+                    lanes.submit(id, op);
+                }
+            }
+            assertTrue(acked.await(10, TimeUnit.SECONDS));
+        } finally {
+            lanes.shutdown();
+        }
+
+        assertEquals(hotels, written.size());
+        for (List<IndexOp> ops : written.values()) {
+            assertEquals(rounds, ops.size());
+            assertEquals(IndexOp.Type.DELETE, ops.get(rounds - 1).getType());
+        }
+    }
+}
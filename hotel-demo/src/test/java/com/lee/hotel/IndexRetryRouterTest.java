@@ -0,0 +1,154 @@
+package com.lee.hotel;
+
+import com.lee.hotel.config.IndexProperties;
+import com.lee.hotel.constants.MqConstants;
+import com.lee.hotel.mq.FailureType;
+import com.lee.hotel.mq.IndexRetryRouter;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ * <p>
+ * 用模拟的RabbitTemplate检查失败消息的去向和消息头
+ */
+public class IndexRetryRouterTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final Channel channel = mock(Channel.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final IndexRetryRouter router = new IndexRetryRouter(rabbitTemplate, mock(AmqpAdmin.class),
+            new IndexProperties(), registry);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(rabbitTemplate.execute(any(ChannelCallback.class)))
+                .thenAnswer(inv -> ((ChannelCallback<?>) inv.getArgument(0)).doInRabbit(channel));
+    }
+
+    // 第一次失败进入第一级延迟队列，带上原队列和重试次数
+    @Test
+    void testFirstRetry() {
+        router.retry(message(null), FailureType.TRANSIENT, "es_rejected_execution_exception");
+
+        Message sent = sent(MqConstants.retryQueue(MqConstants.HOTEL_INSERT_QUEUE, 1000));
+        MessageProperties props = sent.getMessageProperties();
+        assertEquals(MqConstants.HOTEL_INSERT_QUEUE, props.getHeader(MqConstants.HEADER_ORIGINAL_QUEUE));
+        assertEquals(1, (int) props.getHeader(MqConstants.HEADER_RETRY_COUNT));
+        assertEquals("TRANSIENT", props.getHeader(MqConstants.HEADER_FAILURE_TYPE));
+        assertEquals("es_rejected_execution_exception", props.getHeader(MqConstants.HEADER_FAILURE_REASON));
+        assertTrue(router.isRedelivered(sent));
+        assertFalse(router.isRedelivered(message(null)));
+        assertEquals(1, registry.counter("hotel.index.retry", "type", "TRANSIENT", "outcome", "retry").count());
+    }
+
+    // 第n次重试使用第n级延迟，超出时使用最后一级；重试回来的消息仍发往原队列
+    @Test
+    void testTierSelection() {
+        router.retry(message(2), FailureType.TRANSIENT, "timeout");
+        assertEquals(3, (int) sent(MqConstants.retryQueue(MqConstants.HOTEL_INSERT_QUEUE, 30000))
+                .getMessageProperties().getHeader(MqConstants.HEADER_RETRY_COUNT));
+
+        router.retry(message(6), FailureType.TRANSIENT, "timeout");
+        assertEquals(7, (int) sent(MqConstants.retryQueue(MqConstants.HOTEL_INSERT_QUEUE, 600000))
+                .getMessageProperties().getHeader(MqConstants.HEADER_RETRY_COUNT));
+    }
+
+    // 达到该类失败的最大重试次数后转入parking队列
+    @Test
+    void testParking() {
+        router.retry(message(8), FailureType.TRANSIENT, "timeout");
+        router.retry(message(1), FailureType.REJECTED, "mapper_parsing_exception");
+        router.retry(message(null), FailureType.MALFORMED, "酒店变更消息解析失败");
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate, times(3)).send(eq(""), eq(MqConstants.HOTEL_PARKING_QUEUE), captor.capture());
+        assertEquals("REJECTED", captor.getAllValues().get(1).getMessageProperties().getHeader(MqConstants.HEADER_FAILURE_TYPE));
+        assertEquals(MqConstants.HOTEL_INSERT_QUEUE,
+                captor.getAllValues().get(2).getMessageProperties().getHeader(MqConstants.HEADER_ORIGINAL_QUEUE));
+        assertEquals(1, registry.counter("hotel.index.retry", "type", "TRANSIENT", "outcome", "park").count());
+    }
+
+    // 重放：发回原队列、重试次数清零，发送后才确认
+    @Test
+    void testReplay() throws Exception {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(MqConstants.HEADER_ORIGINAL_QUEUE, MqConstants.HOTEL_DELETE_QUEUE);
+        headers.put(MqConstants.HEADER_RETRY_COUNT, 8);
+        byte[] body = "{\"id\":36934}".getBytes(StandardCharsets.UTF_8);
+        when(channel.basicGet(MqConstants.HOTEL_PARKING_QUEUE, false))
+                .thenReturn(parked(1L, headers, body))
+                .thenReturn(null);
+
+        assertEquals(1, router.replay(10));
+
+        ArgumentCaptor<AMQP.BasicProperties> props = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(channel).basicPublish(eq(""), eq(MqConstants.HOTEL_DELETE_QUEUE), props.capture(), eq(body));
+        assertEquals(0, props.getValue().getHeaders().get(MqConstants.HEADER_RETRY_COUNT));
+        verify(channel).basicAck(1L, false);
+    }
+
+    // 没有原队列的消息放回parking队列，停止重放
+    @Test
+    void testReplayWithoutOriginalQueue() throws Exception {
+        when(channel.basicGet(MqConstants.HOTEL_PARKING_QUEUE, false))
+                .thenReturn(parked(2L, null, new byte[0]));
+
+        assertEquals(0, router.replay(10));
+
+        verify(channel).basicReject(2L, true);
+        verify(channel, never()).basicPublish(any(), any(), any(), any());
+    }
+
+    private Message message(Integer retryCount) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(MqConstants.HOTEL_INSERT_QUEUE);
+        if (retryCount != null) {
+            properties.setHeader(MqConstants.HEADER_ORIGINAL_QUEUE, MqConstants.HOTEL_INSERT_QUEUE);
+            properties.setHeader(MqConstants.HEADER_RETRY_COUNT, retryCount);
+        }
+        return new Message("{\"id\":36934}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private Message sent(String routingKey) {
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq(routingKey), captor.capture());
+        return captor.getValue();
+    }
+
+    private GetResponse parked(long tag, Map<String, Object> headers, byte[] body) {
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().headers(headers).build();
+        return new GetResponse(new Envelope(tag, false, "", MqConstants.HOTEL_PARKING_QUEUE), props, body, 0);
+    }
+}
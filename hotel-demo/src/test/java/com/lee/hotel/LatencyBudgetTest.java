@@ -0,0 +1,102 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import com.lee.hotel.budget.CircuitBreaker;
+import com.lee.hotel.budget.LatencyBudget;
+import com.lee.hotel.config.LatencyBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class LatencyBudgetTest {
+
+    private final LatencyBudget budget = new LatencyBudget(properties(), new SimpleMeterRegistry());
+
+    // 参数错误和ES的4xx直接抛出，不兜底，也不计入熔断
+    @Test
+    void testClientErrorNotCounted() {
+        assertEquals("上海", budget.call("search", "k", () -> "上海"));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ElasticsearchException.class, () -> budget.call("search", "k", () -> {
+                throw esError(400);
+            }));
+            assertThrows(IllegalArgumentException.class, () -> budget.call("search", "k", () -> {
+                throw new IllegalArgumentException("bad");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, budget.state("search"));
+    }
+
+    // 网络异常和ES的5xx计入熔断，返回最近一次的结果
+    @Test
+    void testServerErrorFallsBack() {
+        assertEquals("上海", budget.call("search", "k", () -> "上海"));
+        assertEquals("上海", budget.call("search", "k", () -> {
+            throw new RuntimeException(new IOException("Connection refused"));
+        }));
+        assertEquals("上海", budget.call("search", "k", () -> {
+            throw esError(503);
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, budget.state("search"));
+    }
+
+    // 异步调用同样区分：超时兜底，4xx原样失败
+    @Test
+    void testAsync() throws Exception {
+        assertEquals("上海", budget.callAsync("filters", "k", () -> CompletableFuture.completedFuture("上海")).get());
+        assertEquals("上海", budget.callAsync("filters", "k", () -> failed(new TimeoutException("timeout"))).get());
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> budget.callAsync("filters", "k", () -> failed(esError(404))).get());
+        assertTrue(e.getCause() instanceof ElasticsearchException);
+    }
+
+    // 截止时间是全程的上限：到期时以TimeoutException失败，并取消还在等待的原调用
+    @Test
+    void testWithinCancels() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> budget.within("suggest", pending).get());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertTrue(elapsedMillis < 300 * 3, "等待了" + elapsedMillis + "ms");
+        // 先以超时失败再取消原调用，稍等取消完成
+        assertThrows(CancellationException.class, () -> pending.get(1, TimeUnit.SECONDS));
+    }
+
+    private static ElasticsearchException esError(int status) {
+        return new ElasticsearchException("search", ErrorResponse.of(r -> r
+                .status(status)
+                .error(c -> c.type("error").reason("status " + status))));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static LatencyBudgetProperties properties() {
+        LatencyBudgetProperties properties = new LatencyBudgetProperties();
+        properties.getBreaker().setWindowSize(4);
+        properties.getBreaker().setMinimumCalls(3);
+        properties.getBreaker().setFailureRate(0.5);
+        return properties;
+    }
+}
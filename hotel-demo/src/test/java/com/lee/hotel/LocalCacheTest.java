@@ -0,0 +1,82 @@
+package com.lee.hotel;
+
+import com.lee.hotel.cache.LocalCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class LocalCacheTest {
+
+    // 过期后重新加载
+    @Test
+    void testTtl() throws InterruptedException {
+        LocalCache<String, String> cache = new LocalCache<>(10, 50);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("如家1", cache.get("rujia", () -> "如家" + loads.incrementAndGet()));
+        assertEquals("如家1", cache.get("rujia", () -> "如家" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("rujia"));
+        assertEquals("如家2", cache.get("rujia", () -> "如家" + loads.incrementAndGet()));
+    }
+
+    // 超出容量时淘汰最久未访问的
+    @Test
+    void testLru() {
+        LocalCache<String, Integer> cache = new LocalCache<>(2, 60_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        // 访问a之后，b成为最久未访问的
+        assertEquals(1, cache.getIfPresent("a"));
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(3, cache.getIfPresent("c"));
+    }
+
+    // 加载期间发生整体失效，旧的加载结果不写回缓存
+    @Test
+    void testInvalidateDuringLoad() {
+        LocalCache<String, String> cache = new LocalCache<>(10, 60_000);
+        cache.put("sh", "旧");
+        cache.invalidateAll();
+        assertNull(cache.getIfPresent("sh"));
+
+        assertEquals("加载中失效", cache.get("sh", () -> {
+            cache.invalidateAll();
+            return "加载中失效";
+        }));
+        assertNull(cache.getIfPresent("sh"));
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.getAsync("sh", () -> pending);
+        cache.invalidateAll();
+        pending.complete("异步加载中失效");
+        assertEquals("异步加载中失效", result.join());
+        assertNull(cache.getIfPresent("sh"));
+
+        assertEquals("新", cache.get("sh", () -> "新"));
+        assertEquals("新", cache.getIfPresent("sh"));
+    }
+
+    // 不满足cacheable的结果不写入缓存
+    @Test
+    void testCacheable() {
+        LocalCache<String, String> cache = new LocalCache<>(10, 60_000);
+        cache.get("partial", () -> "部分结果", v -> false);
+        assertNull(cache.getIfPresent("partial"));
+        assertEquals(0, cache.size());
+    }
+}
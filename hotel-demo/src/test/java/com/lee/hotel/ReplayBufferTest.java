@@ -0,0 +1,64 @@
+package com.lee.hotel;
+
+import com.lee.hotel.event.ReplayBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class ReplayBufferTest {
+
+    // 加载完成前到达的变更先缓存，加载后按到达顺序重放，之后直接应用
+    @Test
+    void testReplay() {
+        List<Integer> applied = new ArrayList<>();
+        ReplayBuffer<Integer> buffer = new ReplayBuffer<>(applied::add);
+        buffer.offer(1);
+        buffer.offer(2);
+        assertEquals(Collections.emptyList(), applied);
+
+        buffer.start();
+        buffer.offer(3);
+        assertEquals(3, buffer.replay());
+        assertEquals(Arrays.asList(1, 2, 3), applied);
+
+        buffer.offer(4);
+        assertEquals(Arrays.asList(1, 2, 3, 4), applied);
+    }
+
+    // 重放时新到达的变更排在缓存之后
+    @Test
+    void testOfferDuringReplay() {
+        List<Integer> applied = new ArrayList<>();
+        ReplayBuffer<Integer>[] holder = new ReplayBuffer[1];
+        holder[0] = new ReplayBuffer<>(item -> {
+            applied.add(item);
+            if (item == 1) {
+                holder[0].offer(3);
+            }
+        });
+        holder[0].offer(1);
+        holder[0].offer(2);
+        assertEquals(3, holder[0].replay());
+        assertEquals(Arrays.asList(1, 2, 3), applied);
+    }
+
+    // 加载失败时丢弃缓存，之后的变更直接应用
+    @Test
+    void testDiscard() {
+        List<Integer> applied = new ArrayList<>();
+        ReplayBuffer<Integer> buffer = new ReplayBuffer<>(applied::add);
+        buffer.offer(1);
+        buffer.discard();
+        buffer.offer(2);
+        assertEquals(Collections.singletonList(2), applied);
+    }
+}
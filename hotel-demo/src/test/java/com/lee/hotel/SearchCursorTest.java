@@ -0,0 +1,82 @@
+package com.lee.hotel;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.lee.hotel.exception.BadRequestException;
+import com.lee.hotel.pojo.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class SearchCursorTest {
+
+    // 编码后解析得到相同的PIT和排序值，排序值的类型不变
+    @Test
+    void testRoundTrip() {
+        SearchCursor cursor = new SearchCursor("pit-1", Arrays.asList(
+                FieldValue.of(1.25), FieldValue.of(36934L), FieldValue.of("如家"), FieldValue.of(true)));
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+        assertEquals("pit-1", decoded.getPitId());
+        List<FieldValue> values = decoded.toFieldValues();
+        assertEquals(4, values.size());
+        assertTrue(values.get(0).isDouble());
+        assertEquals(1.25, values.get(0).doubleValue());
+        assertTrue(values.get(1).isLong());
+        assertEquals(36934L, values.get(1).longValue());
+        assertEquals("如家", values.get(2).stringValue());
+        assertTrue(values.get(3).booleanValue());
+    }
+
+    // 空字符串表示第一页
+    @Test
+    void testFirstPage() {
+        assertNull(SearchCursor.decode(""));
+        assertNull(SearchCursor.decode(null));
+    }
+
+    // 被篡改的cursor是请求错误
+    @Test
+    void testTampered() {
+        assertThrows(BadRequestException.class, () -> SearchCursor.decode("不是base64"));
+        assertThrows(BadRequestException.class, () -> SearchCursor.decode(encode("{\"pitId\":")));
+        assertThrows(BadRequestException.class, () -> SearchCursor.decode(encode("null")));
+        assertThrows(BadRequestException.class, () -> SearchCursor.decode(encode("{\"searchAfter\":[1]}")));
+        assertThrows(BadRequestException.class, () -> SearchCursor.decode(encode("{\"pitId\":\"pit-1\",\"searchAfter\":[]}")));
+    }
+
+    // PIT过期时ES返回404 search_context_missing_exception，包装在CompletionException中也能识别
+    @Test
+    void testExpired() {
+        ElasticsearchException missing = new ElasticsearchException("search", ErrorResponse.of(r -> r
+                .status(404)
+                .error(e -> e.type("search_context_missing_exception").reason("No search context found for id [1]"))));
+        assertTrue(SearchCursor.isExpired(missing));
+        assertTrue(SearchCursor.isExpired(new CompletionException(missing)));
+
+        ElasticsearchException unavailable = new ElasticsearchException("search", ErrorResponse.of(r -> r
+                .status(503)
+                .error(e -> e.type("search_phase_execution_exception").reason("all shards failed"))));
+        assertFalse(SearchCursor.isExpired(unavailable));
+        assertFalse(SearchCursor.isExpired(new IllegalStateException("timeout")));
+    }
+
+    private String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package com.lee.hotel;
+
+import com.lee.hotel.cache.SearchKeys;
+import com.lee.hotel.pojo.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class SearchKeysTest {
+
+    // 分页、排序、坐标和多余的空格不影响preference
+    @Test
+    void testPreferenceStable() {
+        RequestParams a = params(" 如家 ", "上海");
+        a.setPage(1);
+        a.setLocation("31.2, 121.5");
+        RequestParams b = params("如家", "上海 ");
+        b.setPage(3);
+        b.setSortBy("price");
+
+        assertEquals(SearchKeys.preference(a), SearchKeys.preference(b));
+        assertFalse(SearchKeys.preference(a).startsWith("_"));
+    }
+
+    // 过滤条件不同时落到不同的preference
+    @Test
+    void testPreferenceDiffers() {
+        assertNotEquals(SearchKeys.preference(params("如家", "上海")), SearchKeys.preference(params("如家", "北京")));
+
+        // 只有最低价时价格条件不生效，与没有价格条件相同
+        RequestParams minOnly = params("如家", "上海");
+        minOnly.setMinPrice(100);
+        assertEquals(SearchKeys.preference(params("如家", "上海")), SearchKeys.preference(minOnly));
+        minOnly.setMaxPrice(300);
+        assertNotEquals(SearchKeys.preference(params("如家", "上海")), SearchKeys.preference(minOnly));
+    }
+
+    // 归一化后空格不同的条件得到相同的key，只有空白的关键字与没有关键字相同
+    @Test
+    void testNormalize() {
+        RequestParams padded = params(" 如家 ", " 上海");
+        padded.setBrand("  ");
+        padded.setLocation(" 31.2, 121.5 ");
+        padded.normalize();
+        assertEquals("如家", padded.getKey());
+        assertEquals("上海", padded.getCity());
+        assertNull(padded.getBrand());
+        assertEquals("31.2, 121.5", padded.getLocation());
+
+        RequestParams plain = params("如家", "上海");
+        plain.setLocation("31.2, 121.5");
+        assertEquals(SearchKeys.searchKey(plain, 3), SearchKeys.searchKey(padded, 3));
+
+        RequestParams blank = params("   ", null).normalize();
+        assertNull(blank.getKey());
+        assertEquals(SearchKeys.filterKey(params(null, null)), SearchKeys.filterKey(blank));
+    }
+
+    // 坐标按配置的小数位数四舍五入，分页和排序参与key
+    @Test
+    void testSearchKey() {
+        RequestParams a = params("如家", "上海");
+        a.setLocation("31.21049, 121.50001");
+        RequestParams b = params("如家", "上海");
+        b.setLocation("31.2104, 121.5");
+        assertEquals(SearchKeys.searchKey(a, 3), SearchKeys.searchKey(b, 3));
+        assertNotEquals(SearchKeys.searchKey(a, 4), SearchKeys.searchKey(b, 4));
+
+        b.setPage(2);
+        assertNotEquals(SearchKeys.searchKey(a, 3), SearchKeys.searchKey(b, 3));
+    }
+
+    // 条件中含有分隔符时不会与其他条件组合冲突
+    @Test
+    void testSeparatorInValue() {
+        RequestParams a = params("如家|上海", null);
+        RequestParams b = params("如家", "上海");
+        assertNotEquals(SearchKeys.filterKey(a), SearchKeys.filterKey(b));
+        assertNotEquals(SearchKeys.searchKey(a, 3), SearchKeys.searchKey(b, 3));
+
+        RequestParams c = params("如家", "2:上海");
+        RequestParams d = params("如家|2:上海", null);
+        assertNotEquals(SearchKeys.filterKey(c), SearchKeys.filterKey(d));
+    }
+
+    private RequestParams params(String key, String city) {
+        RequestParams params = new RequestParams();
+        params.setKey(key);
+        params.setCity(city);
+        return params;
+    }
+}
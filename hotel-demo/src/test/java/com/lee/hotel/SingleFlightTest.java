@@ -0,0 +1,125 @@
+package com.lee.hotel;
+
+import com.lee.hotel.cache.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+    // 执行期间到达的相同请求共享第一个请求的结果
+    @Test
+    void testRunShared() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        List<Future<String>> results = new ArrayList<>();
+        results.add(pool.submit(() -> flight.run("rujia", () -> {
+            executed.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "如家";
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 7; i++) {
+            results.add(pool.submit(() -> flight.run("rujia", () -> {
+                executed.incrementAndGet();
+                return "如家";
+            })));
+        }
+        // 等待其余请求都进入等待
+        while (flight.getShared() < 7) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("如家", result.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(1, executed.get());
+        assertEquals(7, flight.getShared());
+        assertEquals(7 / 8.0, flight.dedupRatio());
+        assertEquals(0, flight.inFlight());
+    }
+
+    // 异步请求共享同一个ES调用，完成之后的请求重新执行
+    @Test
+    void testRunAsync() {
+        AtomicInteger executed = new AtomicInteger();
+        CompletableFuture<String> es = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.runAsync("sh", () -> {
+            executed.incrementAndGet();
+            return es;
+        });
+        CompletableFuture<String> second = flight.runAsync("sh", () -> {
+            executed.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        CompletableFuture<String> other = flight.runAsync("bj", () -> {
+            executed.incrementAndGet();
+            return CompletableFuture.completedFuture("北京");
+        });
+        assertEquals(2, executed.get());
+        assertEquals("北京", other.join());
+
+        // 一个调用方取消不影响其他调用方
+        first.cancel(false);
+        assertFalse(second.isDone());
+        es.complete("上海");
+        assertEquals("上海", second.join());
+
+        flight.runAsync("sh", () -> {
+            executed.incrementAndGet();
+            return CompletableFuture.completedFuture("上海");
+        }).join();
+        assertEquals(3, executed.get());
+        assertEquals(1, flight.getShared());
+    }
+
+    // 失败同样共享给等待的请求，之后的请求重新执行
+    @Test
+    void testFailure() {
+        CompletableFuture<String> es = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.runAsync("k", () -> es);
+        CompletableFuture<String> second = flight.runAsync("k", () -> CompletableFuture.completedFuture("v"));
+        es.completeExceptionally(new IllegalStateException("timeout"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+
+        assertThrows(IllegalStateException.class, () -> flight.run("k", () -> {
+            throw new IllegalStateException("timeout");
+        }));
+        assertEquals("v", flight.run("k", () -> "v"));
+        assertEquals(0, flight.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.lee.hotel;
+
+import com.lee.hotel.pojo.RequestParams;
+import com.lee.hotel.slowlog.SlowQuery;
+import com.lee.hotel.slowlog.SlowQueryRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class SlowQueryRingTest {
+
+    // 写满后覆盖最早的记录，按时间倒序返回
+    @Test
+    void testOverwrite() {
+        SlowQueryRing ring = new SlowQueryRing(3);
+        for (int i = 1; i <= 5; i++) {
+            ring.add(slowQuery(i));
+        }
+        List<SlowQuery> list = ring.snapshot();
+        assertEquals(3, list.size());
+        assertEquals(5, list.get(0).getTimestamp());
+        assertEquals(3, list.get(2).getTimestamp());
+        assertEquals(5, ring.count());
+
+        ring.clear();
+        assertTrue(ring.snapshot().isEmpty());
+    }
+
+    // 并发写入不丢计数，保留的条数不超过容量
+    @Test
+    void testConcurrentAdd() throws InterruptedException {
+        SlowQueryRing ring = new SlowQueryRing(64);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10000; i++) {
+            long timestamp = i;
+            pool.execute(() -> ring.add(slowQuery(timestamp)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(10000, ring.count());
+        assertEquals(64, ring.snapshot().size());
+    }
+
+    private SlowQuery slowQuery(long timestamp) {
+        return new SlowQuery(timestamp, "search", "", new RequestParams(), "{}", 600, 550, 10);
+    }
+}
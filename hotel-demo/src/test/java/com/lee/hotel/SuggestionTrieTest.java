@@ -0,0 +1,55 @@
+package com.lee.hotel;
+
+import com.lee.hotel.suggest.PinyinTerms;
+import com.lee.hotel.suggest.SuggestionTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author LiJing
+ * @version 1.0
+ */
+public class SuggestionTrieTest {
+
+    // 原文、全拼、首字母
+    @Test
+    void testPinyinTerms() {
+        assertEquals(Arrays.asList("如家", "rujia", "rj"), new ArrayList<>(PinyinTerms.of("如家")));
+        assertEquals(Arrays.asList("7天酒店", "7tianjiudian", "7tjd"), new ArrayList<>(PinyinTerms.of("7天酒店")));
+    }
+
+    // 前缀补全
+    @Test
+    void testSuggest() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.add("如家");
+        trie.add("汝州");
+        trie.add("速8");
+
+        List<String> byFirstLetter = trie.suggest("r", 10);
+        assertTrue(byFirstLetter.containsAll(Arrays.asList("如家", "汝州")));
+        assertEquals(Arrays.asList("如家"), trie.suggest("ruj", 10));
+        assertEquals(Arrays.asList("如家"), trie.suggest("如", 10));
+        assertEquals(Arrays.asList("速8"), trie.suggest("S", 10));
+    }
+
+    // 引用计数：两家酒店都有的补全值，删掉一家后仍然可以查到
+    @Test
+    void testRemove() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.add("如家");
+        trie.add("如家");
+
+        trie.remove("如家");
+        assertEquals(Arrays.asList("如家"), trie.suggest("rj", 10));
+
+        trie.remove("如家");
+        assertTrue(trie.suggest("r", 10).isEmpty());
+    }
+}